@@ -0,0 +1,26 @@
+package benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Запуск: BenchmarkRunner [регулярное выражение бенчмарков] [файл результатов] [размеры доски через запятую]
+// Результаты пишутся в JSON, чтобы их можно было сравнивать между запусками.
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "benchmark\\..*";
+        String resultFile = args.length > 1 ? args[1] : "bench-results.json";
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile);
+        if (args.length > 2) {
+            options.param("boardSize", args[2].split(","));
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,41 @@
+package benchmark;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import service.TaskManager;
+import utils.Status;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+final class Boards {
+    static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+    static final Duration SLOT = Duration.ofMinutes(15);
+    static final int SUBTASKS_PER_EPIC = 20;
+
+    private Boards() {
+    }
+
+    // Половина доски - отдельные задачи, половина - эпики с подзадачами; все слоты по 15 минут через каждые 30.
+    static void fill(TaskManager manager, int size) {
+        int tasks = size / 2;
+        for (int i = 0; i < tasks; i++) {
+            manager.createTask(new Task("Task " + i, "Description " + i, Status.NEW, SLOT, slot(i)));
+        }
+        int slot = tasks;
+        int created = tasks;
+        while (created < size) {
+            Epic epic = manager.createEpic(new Epic("Epic " + created, "Description " + created));
+            created++;
+            for (int j = 0; j < SUBTASKS_PER_EPIC && created < size; j++, created++) {
+                manager.createSubtask(new Subtask("Subtask " + created, "Description " + created, epic.getId(),
+                        j % 3 == 0 ? Status.DONE : Status.NEW, SLOT, slot(slot++)));
+            }
+        }
+    }
+
+    static LocalDateTime slot(long index) {
+        return START.plusMinutes(30 * index);
+    }
+}
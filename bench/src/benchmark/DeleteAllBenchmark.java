@@ -0,0 +1,56 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.InMemoryTaskManager;
+
+import java.util.concurrent.TimeUnit;
+
+// Каждое удаление выполняется на свежей доске, поэтому замеряется одиночный вызов.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class DeleteAllBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int boardSize;
+
+    private InMemoryTaskManager manager;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        Boards.fill(manager, boardSize);
+    }
+
+    @Benchmark
+    public InMemoryTaskManager deleteAllTasks() {
+        manager.deleteAllTasks();
+        return manager;
+    }
+
+    @Benchmark
+    public InMemoryTaskManager deleteAllSubtasks() {
+        manager.deleteAllSubtasks();
+        return manager;
+    }
+
+    @Benchmark
+    public InMemoryTaskManager deleteAllEpicsCascade() {
+        manager.deleteAllEpics();
+        return manager;
+    }
+}
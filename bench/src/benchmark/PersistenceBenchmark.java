@@ -0,0 +1,97 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import model.Task;
+import service.FileBackedTaskManager;
+import utils.Durability;
+import utils.SnapshotFormat;
+import utils.Status;
+import utils.TypeTask;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class PersistenceBenchmark {
+    private static final long BUILD_FLUSH_INTERVAL_MILLIS = 3_600_000;
+
+    @Param({"1000", "100000", "1000000"})
+    public int boardSize;
+
+    @Param({"CSV", "BINARY", "SEGMENTED"})
+    public SnapshotFormat format;
+
+    private Path file;
+    private FileBackedTaskManager manager;
+    private Task updated;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("kanban-bench", ".data");
+        // Доска заполняется с отложенной записью, чтобы подготовка не сохраняла файл после каждой задачи
+        manager = new FileBackedTaskManager(file, false, format, Durability.NONE,
+                BUILD_FLUSH_INTERVAL_MILLIS, Integer.MAX_VALUE);
+        Boards.fill(manager, boardSize);
+        manager.checkpoint();
+        Task first = manager.getPage(TypeTask.TASK, 0, 1).get(0);
+        updated = new Task(first.getName(), first.getDescription(), Status.IN_PROGRESS,
+                first.getDuration(), first.getStartTime());
+        updated.setId(first.getId());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+        Files.deleteIfExists(file);
+        Path segments = file.resolveSibling(file.getFileName() + ".segments");
+        if (Files.exists(segments)) {
+            try (Stream<Path> files = Files.walk(segments)) {
+                for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public FileBackedTaskManager save() {
+        manager.checkpoint();
+        return manager;
+    }
+
+    // Сохранение после изменения одной задачи: для SEGMENTED переписывается один сегмент,
+    // для остальных форматов - весь файл
+    @Benchmark
+    public FileBackedTaskManager updateOneAndSave() {
+        updated.setStatus(updated.getStatus() == Status.DONE ? Status.IN_PROGRESS : Status.DONE);
+        manager.updateTask(updated);
+        manager.checkpoint();
+        return manager;
+    }
+
+    @Benchmark
+    public FileBackedTaskManager load() {
+        return new FileBackedTaskManager(file, false, format, Durability.NONE, 0, 0);
+    }
+}
@@ -0,0 +1,87 @@
+package benchmark;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import service.InMemoryTaskManager;
+import utils.Status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class TaskManagerBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int boardSize;
+
+    private InMemoryTaskManager manager;
+    private int[] taskIds;
+    private int nextRead;
+    private long nextSlot;
+    private final List<Integer> createdIds = new ArrayList<>();
+    private Epic churnEpic;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        Boards.fill(manager, boardSize);
+        taskIds = manager.getAllTasks().stream().mapToInt(Task::getId).toArray();
+        nextSlot = boardSize;
+        churnEpic = manager.createEpic(new Epic("Churn", "Эпик для добавления и удаления подзадач"));
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeCreatedTasks() {
+        for (int id : createdIds) {
+            manager.deleteTask(id);
+        }
+        createdIds.clear();
+        nextSlot = boardSize;
+    }
+
+    @Benchmark
+    public Task createTaskWithOverlapCheck() {
+        Task task = manager.createTask(new Task("New", "Description", Status.NEW, Boards.SLOT, Boards.slot(nextSlot++)));
+        createdIds.add(task.getId());
+        return task;
+    }
+
+    @Benchmark
+    public Task getTaskByIdWithHistory() {
+        int id = taskIds[nextRead++ % taskIds.length];
+        return manager.getTaskById(id);
+    }
+
+    @Benchmark
+    public List<Task> getPrioritizedTasks() {
+        return manager.getPrioritizedTasks();
+    }
+
+    @Benchmark
+    public Status epicSubtaskChurn() {
+        Subtask subtask = manager.createSubtask(new Subtask("Churn", "Description", churnEpic.getId(),
+                Status.IN_PROGRESS, Boards.SLOT, Boards.slot(-1)));
+        manager.deleteSubtask(subtask.getId());
+        return churnEpic.getStatus();
+    }
+}
@@ -0,0 +1,14 @@
+package http;
+
+// Некорректный запрос клиента: ответ 400 с текстом сообщения
+class BadRequestException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    BadRequestException(String message) {
+        super(message);
+    }
+
+    BadRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
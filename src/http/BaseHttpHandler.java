@@ -0,0 +1,242 @@
+package http;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import model.Subtask;
+import model.Task;
+import service.TaskManager;
+import utils.TypeTask;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+// Общая часть обработчиков: разбор пути, выполнение операций менеджера и отправка ответов.
+// Если менеджер не потокобезопасен, все обращения к нему идут под одной блокировкой (lock != null),
+// а списки копируются под ней и отдаются клиенту уже после ее освобождения.
+abstract class BaseHttpHandler implements HttpHandler {
+    private static final Logger LOG = Logger.getLogger(BaseHttpHandler.class.getName());
+    private static final String JSON_TYPE = "application/json; charset=utf-8";
+    private static final int GZIP_MIN_BYTES = 1024;
+    private static final int BUFFER_SIZE = 8192;
+
+    protected final TaskManager taskManager;
+    private final Lock lock;
+
+    protected BaseHttpHandler(TaskManager taskManager, Lock lock) {
+        this.taskManager = taskManager;
+        this.lock = lock;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            handle(exchange, exchange.getRequestMethod(), pathSegments(exchange));
+        } catch (BadRequestException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            // Клиент получает только общее сообщение, причина остается в журнале сервера
+            LOG.log(Level.SEVERE, "Ошибка обработки " + exchange.getRequestMethod() + " "
+                    + exchange.getRequestURI(), e);
+            sendError(exchange, 500, "Внутренняя ошибка сервера.");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    protected abstract void handle(HttpExchange exchange, String method, List<String> path) throws IOException;
+
+    protected <T> T call(Supplier<T> action) {
+        if (lock == null) {
+            return action.get();
+        }
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    protected void run(Runnable action) {
+        call(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // Проверка без записи в историю: getById добавил бы задачу в просмотренные
+    protected boolean exists(TypeTask type, int id) {
+        return call(() -> taskManager.contains(type, id));
+    }
+
+    // POST: задача без id создается, с id - обновляется. Пересечение по времени - 406,
+    // отсутствующая задача или эпик подзадачи - 404. Менеджер сообщает об обоих случаях
+    // IllegalArgumentException, поэтому после ошибки причина уточняется повторной проверкой.
+    protected void save(HttpExchange exchange, TypeTask type, Consumer<Task> create, Consumer<Task> update)
+            throws IOException {
+        Task task = TaskJson.parse(readBody(exchange), type);
+        boolean creating = task.getId() == 0;
+        if (!referencesExist(task, creating)) {
+            sendNotFound(exchange);
+            return;
+        }
+        try {
+            run(() -> (creating ? create : update).accept(task));
+        } catch (IllegalArgumentException e) {
+            if (referencesExist(task, creating)) {
+                sendHasInteractions(exchange, e.getMessage());
+            } else {
+                sendNotFound(exchange);
+            }
+            return;
+        }
+        sendJson(exchange, 201, task);
+    }
+
+    private boolean referencesExist(Task task, boolean creating) {
+        if (task instanceof Subtask && !exists(TypeTask.EPIC, ((Subtask) task).getEpicId())) {
+            return false;
+        }
+        return creating || exists(TaskJson.typeOf(task), task.getId());
+    }
+
+    protected static int parseId(String segment) {
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Некорректный идентификатор: " + segment + ".", e);
+        }
+    }
+
+    protected static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    protected void sendJson(HttpExchange exchange, int code, Task task) throws IOException {
+        sendText(exchange, code, TaskJson.toJson(task));
+    }
+
+    protected void sendText(HttpExchange exchange, int code, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        if (bytes.length >= GZIP_MIN_BYTES && acceptsGzip(exchange)) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(code, 0);
+            try (OutputStream out = new GZIPOutputStream(exchange.getResponseBody(), BUFFER_SIZE)) {
+                out.write(bytes);
+            }
+            return;
+        }
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // Список отдается потоком (chunked): задачи сериализуются по одной прямо в буфер ответа.
+    // Потокобезопасный менеджер читается во время записи, остальные - по копии, снятой под блокировкой.
+    protected void sendList(HttpExchange exchange, Supplier<Stream<? extends Task>> source) throws IOException {
+        Iterator<? extends Task> tasks;
+        if (lock == null) {
+            tasks = source.get().iterator();
+        } else {
+            List<? extends Task> copy = call(() -> source.get().toList());
+            tasks = copy.iterator();
+        }
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        boolean gzip = acceptsGzip(exchange);
+        if (gzip) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream body = exchange.getResponseBody();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                gzip ? new GZIPOutputStream(body, BUFFER_SIZE) : body, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            out.write('[');
+            boolean first = true;
+            while (tasks.hasNext()) {
+                if (!first) {
+                    out.write(',');
+                }
+                TaskJson.write(tasks.next(), out);
+                first = false;
+            }
+            out.write(']');
+        }
+    }
+
+    protected void sendOk(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    protected void sendNotFound(HttpExchange exchange) throws IOException {
+        sendError(exchange, 404, "Не найдено.");
+    }
+
+    protected void sendHasInteractions(HttpExchange exchange, String message) throws IOException {
+        sendError(exchange, 406, message);
+    }
+
+    // allowed - методы, которые принимает этот путь, для заголовка Allow
+    protected void sendMethodNotAllowed(HttpExchange exchange, String allowed) throws IOException {
+        exchange.getResponseHeaders().set("Allow", allowed);
+        sendError(exchange, 405, "Метод не поддерживается.");
+    }
+
+    // Если заголовки уже ушли (ошибка посреди потока), остается только закрыть соединение
+    private void sendError(HttpExchange exchange, int code, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            return;
+        }
+        StringBuilder json = new StringBuilder("{\"error\":");
+        TaskJson.writeString(message, json);
+        json.append('}');
+        sendText(exchange, code, json.toString());
+    }
+
+    private static List<String> pathSegments(HttpExchange exchange) {
+        List<String> segments = new ArrayList<>(3);
+        for (String segment : exchange.getRequestURI().getPath().split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    private static boolean acceptsGzip(HttpExchange exchange) {
+        Headers headers = exchange.getRequestHeaders();
+        List<String> values = headers.get("Accept-Encoding");
+        if (values == null) {
+            return false;
+        }
+        for (String value : values) {
+            for (String coding : value.split(",")) {
+                String trimmed = coding.trim().toLowerCase(Locale.ROOT);
+                if (trimmed.equals("gzip") || trimmed.startsWith("gzip;") && !trimmed.replace(" ", "").endsWith("q=0")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
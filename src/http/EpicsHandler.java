@@ -0,0 +1,75 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import model.Epic;
+import service.TaskManager;
+import utils.TypeTask;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+class EpicsHandler extends BaseHttpHandler {
+
+    EpicsHandler(TaskManager taskManager, Lock lock) {
+        super(taskManager, lock);
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange, String method, List<String> path) throws IOException {
+        if (path.size() > 3 || path.size() == 3 && !path.get(2).equals("subtasks")) {
+            sendNotFound(exchange);
+            return;
+        }
+        switch (method) {
+            case "GET":
+                if (path.size() == 1) {
+                    sendList(exchange, () -> taskManager.stream(TypeTask.EPIC));
+                    return;
+                }
+                int id = parseId(path.get(1));
+                if (path.size() == 3) {
+                    if (!exists(TypeTask.EPIC, id)) {
+                        sendNotFound(exchange);
+                    } else {
+                        sendList(exchange, () -> taskManager.getSubtaskByEpic(id).stream());
+                    }
+                    return;
+                }
+                Epic epic = call(() -> taskManager.getEpicById(id));
+                if (epic == null) {
+                    sendNotFound(exchange);
+                } else {
+                    sendJson(exchange, 200, epic);
+                }
+                break;
+            case "POST":
+                if (path.size() == 3) {
+                    sendMethodNotAllowed(exchange, "GET");
+                    return;
+                }
+                if (path.size() != 1) {
+                    sendNotFound(exchange);
+                    return;
+                }
+                save(exchange, TypeTask.EPIC, task -> taskManager.createEpic((Epic) task),
+                        task -> taskManager.updateEpic((Epic) task));
+                break;
+            case "DELETE":
+                if (path.size() == 3) {
+                    sendMethodNotAllowed(exchange, "GET");
+                    return;
+                }
+                if (path.size() == 1) {
+                    run(taskManager::deleteAllEpics);
+                } else {
+                    int deletedId = parseId(path.get(1));
+                    run(() -> taskManager.deleteEpic(deletedId));
+                }
+                sendOk(exchange);
+                break;
+            default:
+                sendMethodNotAllowed(exchange, path.size() == 3 ? "GET" : "GET, POST, DELETE");
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import service.TaskManager;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+class HistoryHandler extends BaseHttpHandler {
+
+    HistoryHandler(TaskManager taskManager, Lock lock) {
+        super(taskManager, lock);
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange, String method, List<String> path) throws IOException {
+        if (path.size() != 1) {
+            sendNotFound(exchange);
+        } else if (!method.equals("GET")) {
+            sendMethodNotAllowed(exchange, "GET");
+        } else {
+            sendList(exchange, () -> taskManager.getHistory().stream());
+        }
+    }
+}
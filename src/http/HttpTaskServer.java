@@ -0,0 +1,71 @@
+package http;
+
+import com.sun.net.httpserver.HttpServer;
+import service.ConcurrentTaskManager;
+import service.InstrumentedTaskManager;
+import service.TaskManager;
+import utils.Managers;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// HTTP API поверх любого TaskManager. Каждый запрос обрабатывается в своем виртуальном потоке,
+// соединения переиспользуются (keep-alive HTTP/1.1), списки отдаются потоком, а при
+// Accept-Encoding: gzip - сжатыми. Менеджеры без собственной синхронизации вызываются под общей
+// блокировкой; ReentrantLock вместо synchronized не закрепляет виртуальный поток за носителем.
+public class HttpTaskServer {
+    public static final int DEFAULT_PORT = 8080;
+    private static final int BACKLOG = 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public HttpTaskServer(TaskManager taskManager) throws IOException {
+        this(taskManager, DEFAULT_PORT);
+    }
+
+    public HttpTaskServer(TaskManager taskManager, int port) throws IOException {
+        Lock lock = isThreadSafe(taskManager) ? null : new ReentrantLock();
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        server.createContext("/tasks", new TasksHandler(taskManager, lock));
+        server.createContext("/subtasks", new SubtasksHandler(taskManager, lock));
+        server.createContext("/epics", new EpicsHandler(taskManager, lock));
+        server.createContext("/history", new HistoryHandler(taskManager, lock));
+        server.createContext("/prioritized", new PrioritizedHandler(taskManager, lock));
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.close();
+    }
+
+    // Фактический порт: при запуске на порту 0 его выбирает система
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    static boolean isThreadSafe(TaskManager taskManager) {
+        if (taskManager instanceof InstrumentedTaskManager) {
+            return isThreadSafe(((InstrumentedTaskManager) taskManager).getDelegate());
+        }
+        return taskManager instanceof ConcurrentTaskManager;
+    }
+
+    public static void main(String[] args) throws IOException {
+        // Без задержки Нейгла короткие ответы на keep-alive соединениях не ждут подтверждения клиента
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpTaskServer server = new HttpTaskServer(Managers.getConcurrent());
+        server.start();
+        System.out.println("HTTP-сервер запущен на порту " + server.getPort());
+    }
+}
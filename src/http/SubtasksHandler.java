@@ -0,0 +1,59 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import model.Subtask;
+import service.TaskManager;
+import utils.TypeTask;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+class SubtasksHandler extends BaseHttpHandler {
+
+    SubtasksHandler(TaskManager taskManager, Lock lock) {
+        super(taskManager, lock);
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange, String method, List<String> path) throws IOException {
+        if (path.size() > 2) {
+            sendNotFound(exchange);
+            return;
+        }
+        switch (method) {
+            case "GET":
+                if (path.size() == 1) {
+                    sendList(exchange, () -> taskManager.stream(TypeTask.SUBTASK));
+                    return;
+                }
+                int id = parseId(path.get(1));
+                Subtask subtask = call(() -> taskManager.getSubtaskById(id));
+                if (subtask == null) {
+                    sendNotFound(exchange);
+                } else {
+                    sendJson(exchange, 200, subtask);
+                }
+                break;
+            case "POST":
+                if (path.size() != 1) {
+                    sendNotFound(exchange);
+                    return;
+                }
+                save(exchange, TypeTask.SUBTASK, task -> taskManager.createSubtask((Subtask) task),
+                        task -> taskManager.updateSubtask((Subtask) task));
+                break;
+            case "DELETE":
+                if (path.size() == 1) {
+                    run(taskManager::deleteAllSubtasks);
+                } else {
+                    int deletedId = parseId(path.get(1));
+                    run(() -> taskManager.deleteSubtask(deletedId));
+                }
+                sendOk(exchange);
+                break;
+            default:
+                sendMethodNotAllowed(exchange, "GET, POST, DELETE");
+        }
+    }
+}
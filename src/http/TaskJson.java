@@ -0,0 +1,353 @@
+package http;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import utils.Status;
+import utils.TypeTask;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+// JSON задач без сторонних библиотек. Запись идет прямо в Appendable, поэтому длинный список
+// можно отдавать потоком, не собирая ответ в строку. Разбор поддерживает один плоский объект:
+// вложенные объекты и массивы пропускаются. Длительность - в минутах, как в файле менеджера.
+final class TaskJson {
+
+    private TaskJson() {
+    }
+
+    static String toJson(Task task) {
+        StringBuilder sb = new StringBuilder(128);
+        try {
+            write(task, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    static void write(Task task, Appendable out) throws IOException {
+        out.append("{\"id\":").append(String.valueOf(task.getId()));
+        out.append(",\"type\":\"").append(typeOf(task).name()).append('"');
+        out.append(",\"name\":");
+        writeString(task.getName(), out);
+        out.append(",\"description\":");
+        writeString(task.getDescription(), out);
+        out.append(",\"status\":");
+        writeString(task.getStatus() != null ? task.getStatus().name() : null, out);
+        if (task instanceof Subtask) {
+            out.append(",\"epicId\":").append(String.valueOf(((Subtask) task).getEpicId()));
+        }
+        Duration duration = task.getDuration();
+        out.append(",\"duration\":").append(duration != null ? String.valueOf(duration.toMinutes()) : "null");
+        LocalDateTime startTime = task.getStartTime();
+        out.append(",\"startTime\":");
+        writeString(startTime != null ? startTime.toString() : null, out);
+        LocalDateTime endTime = task.getEndTime();
+        out.append(",\"endTime\":");
+        writeString(endTime != null ? endTime.toString() : null, out);
+        out.append('}');
+    }
+
+    static Task parse(String json, TypeTask type) {
+        Map<String, Object> fields = new Parser(json).parseObject();
+        String name = string(fields, "name");
+        if (name == null) {
+            throw new BadRequestException("Не указано название задачи.");
+        }
+        String description = string(fields, "description");
+        Task task;
+        if (type == TypeTask.EPIC) {
+            task = new Epic(name, description);
+        } else {
+            String status = string(fields, "status");
+            Duration duration = fields.get("duration") != null ? Duration.ofMinutes(number(fields, "duration")) : null;
+            LocalDateTime startTime = dateTime(fields, "startTime");
+            Status parsedStatus = status != null ? status(status) : Status.NEW;
+            if (type == TypeTask.SUBTASK) {
+                if (fields.get("epicId") == null) {
+                    throw new BadRequestException("Не указан эпик подзадачи.");
+                }
+                task = new Subtask(name, description, intNumber(fields, "epicId"), parsedStatus,
+                        duration, startTime);
+            } else {
+                task = new Task(name, description, parsedStatus, duration, startTime);
+            }
+        }
+        if (fields.get("id") != null) {
+            task.setId(intNumber(fields, "id"));
+        }
+        return task;
+    }
+
+    static TypeTask typeOf(Task task) {
+        if (task instanceof Subtask) {
+            return TypeTask.SUBTASK;
+        }
+        return task instanceof Epic ? TypeTask.EPIC : TypeTask.TASK;
+    }
+
+    static void writeString(String value, Appendable out) throws IOException {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    private static String string(Map<String, Object> fields, String key) {
+        Object value = fields.get(key);
+        if (value != null && !(value instanceof String)) {
+            throw new BadRequestException("Поле " + key + " должно быть строкой.");
+        }
+        return (String) value;
+    }
+
+    private static long number(Map<String, Object> fields, String key) {
+        Object value = fields.get(key);
+        if (!(value instanceof Long)) {
+            throw new BadRequestException("Поле " + key + " должно быть целым числом.");
+        }
+        return (Long) value;
+    }
+
+    private static int intNumber(Map<String, Object> fields, String key) {
+        long value = number(fields, key);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new BadRequestException("Значение поля " + key + " вне допустимого диапазона.");
+        }
+        return (int) value;
+    }
+
+    private static LocalDateTime dateTime(Map<String, Object> fields, String key) {
+        String value = string(fields, key);
+        try {
+            return value != null ? LocalDateTime.parse(value) : null;
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Некорректное время в поле " + key + ".", e);
+        }
+    }
+
+    private static Status status(String value) {
+        try {
+            return Status.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Неизвестный статус: " + value + ".", e);
+        }
+    }
+
+    // Значения полей: String, Long, Boolean или null. Вложенные структуры в результат не попадают.
+    private static final class Parser {
+        private final String json;
+        private int pos;
+
+        Parser(String json) {
+            this.json = json;
+        }
+
+        Map<String, Object> parseObject() {
+            skipWhitespace();
+            expect('{');
+            Map<String, Object> fields = new HashMap<>();
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return finish(fields);
+            }
+            while (true) {
+                skipWhitespace();
+                String key = parseString();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                char c = peek();
+                if (c == '{' || c == '[') {
+                    skipNested();
+                } else {
+                    fields.put(key, parseValue());
+                }
+                skipWhitespace();
+                char next = next();
+                if (next == '}') {
+                    return finish(fields);
+                }
+                if (next != ',') {
+                    throw error();
+                }
+            }
+        }
+
+        private Map<String, Object> finish(Map<String, Object> fields) {
+            skipWhitespace();
+            if (pos != json.length()) {
+                throw error();
+            }
+            return fields;
+        }
+
+        private Object parseValue() {
+            char c = peek();
+            if (c == '"') {
+                return parseString();
+            }
+            if (json.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            if (json.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            }
+            if (json.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            }
+            int start = pos;
+            if (c == '-') {
+                pos++;
+            }
+            while (pos < json.length() && Character.isDigit(json.charAt(pos))) {
+                pos++;
+            }
+            if (pos == start || pos < json.length() && ".eE".indexOf(json.charAt(pos)) >= 0) {
+                throw new BadRequestException("Ожидалось целое число в позиции " + start + ".");
+            }
+            try {
+                return Long.parseLong(json.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Слишком большое число в позиции " + start + ".", e);
+            }
+        }
+
+        private String parseString() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        if (pos + 4 > json.length()) {
+                            throw error();
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error();
+                        }
+                        pos += 4;
+                        break;
+                    case '"':
+                    case '\\':
+                    case '/':
+                        sb.append(escaped);
+                        break;
+                    default:
+                        throw error();
+                }
+            }
+        }
+
+        // Пропуск вложенного объекта или массива с учетом строк, в которых могут встречаться скобки
+        private void skipNested() {
+            int depth = 0;
+            do {
+                char c = peek();
+                if (c == '"') {
+                    parseString();
+                    continue;
+                }
+                pos++;
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+            } while (depth > 0);
+        }
+
+        private void skipWhitespace() {
+            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) {
+                throw error();
+            }
+        }
+
+        private char peek() {
+            if (pos >= json.length()) {
+                throw error();
+            }
+            return json.charAt(pos);
+        }
+
+        private char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private BadRequestException error() {
+            return new BadRequestException("Некорректный JSON в позиции " + pos + ".");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import model.Task;
+import service.TaskManager;
+import utils.TypeTask;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+class TasksHandler extends BaseHttpHandler {
+
+    TasksHandler(TaskManager taskManager, Lock lock) {
+        super(taskManager, lock);
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange, String method, List<String> path) throws IOException {
+        if (path.size() > 2) {
+            sendNotFound(exchange);
+            return;
+        }
+        switch (method) {
+            case "GET":
+                if (path.size() == 1) {
+                    sendList(exchange, () -> taskManager.stream(TypeTask.TASK));
+                    return;
+                }
+                int id = parseId(path.get(1));
+                Task task = call(() -> taskManager.getTaskById(id));
+                if (task == null) {
+                    sendNotFound(exchange);
+                } else {
+                    sendJson(exchange, 200, task);
+                }
+                break;
+            case "POST":
+                if (path.size() != 1) {
+                    sendNotFound(exchange);
+                    return;
+                }
+                save(exchange, TypeTask.TASK, taskManager::createTask, taskManager::updateTask);
+                break;
+            case "DELETE":
+                if (path.size() == 1) {
+                    run(taskManager::deleteAllTasks);
+                } else {
+                    int deletedId = parseId(path.get(1));
+                    run(() -> taskManager.deleteTask(deletedId));
+                }
+                sendOk(exchange);
+                break;
+            default:
+                sendMethodNotAllowed(exchange, "GET, POST, DELETE");
+        }
+    }
+}
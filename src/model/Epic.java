@@ -4,88 +4,252 @@ import utils.Status;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class Epic extends Task {
 
-    private List<Subtask> subtasks;
+    // Подзадачи хранятся по id в порядке добавления. Подзадачи без id (еще не созданные менеджером)
+    // получают локальный отрицательный ключ, чтобы не схлопываться в одну запись.
+    private final Map<Integer, Member> subtasks = new LinkedHashMap<>();
+    private final Collection<Subtask> subtaskView = new SubtaskView();
+    private int detachedKeys;
     private LocalDateTime endTime;
 
+    private final int[] statusCounts = new int[Status.values().length];
+    private final TreeMap<LocalDateTime, Integer> startTimes = new TreeMap<>();
+    private final TreeMap<LocalDateTime, Integer> endTimes = new TreeMap<>();
+    private Duration totalDuration = Duration.ZERO;
+
     public Epic(String name, String description) {
         super(name, description, Status.NEW, Duration.ZERO, null);
-        subtasks = new ArrayList<>();
     }
 
     public void addSubtask(Subtask subtask) {
-        subtasks.add(subtask);
-        updateEpicDetails();
+        attach(subtask);
+        applyRollup();
     }
 
-    public void updateEpicDetails() {
-        if (subtasks.isEmpty()) {
-            this.status = Status.NEW;
-            this.duration = Duration.ZERO;
-            this.startTime = null;
-            this.endTime = null;
+    // Пакетное добавление или замена по id: агрегаты пересчитываются один раз на весь пакет
+    public void addSubtasks(Collection<Subtask> added) {
+        for (Subtask subtask : added) {
+            attach(subtask);
+        }
+        applyRollup();
+    }
+
+    public void replaceSubtask(Subtask oldSubtask, Subtask newSubtask) {
+        Integer key = keyOf(oldSubtask);
+        if (key == null || newSubtask.getId() != 0 && newSubtask.getId() != key) {
+            removeSubtask(oldSubtask);
+            addSubtask(newSubtask);
             return;
         }
-        Duration totalDuration = Duration.ZERO;
-        LocalDateTime earliestStartTime = null;
-        LocalDateTime latestEndTime = null;
+        exclude(subtasks.put(key, include(newSubtask)));
+        applyRollup();
+    }
 
-        boolean allDone = true;
-        boolean anyInProgress = false;
+    public void updateEpicDetails() {
+        Arrays.fill(statusCounts, 0);
+        startTimes.clear();
+        endTimes.clear();
+        totalDuration = Duration.ZERO;
+        for (Map.Entry<Integer, Member> entry : subtasks.entrySet()) {
+            entry.setValue(include(entry.getValue().subtask));
+        }
+        applyRollup();
+    }
 
-        for (Subtask subtask : subtasks) {
-            totalDuration = totalDuration.plus(subtask.getDuration());
-            if (earliestStartTime == null || (subtask.getStartTime() != null && subtask.getStartTime().isBefore(earliestStartTime))) {
-                earliestStartTime = subtask.getStartTime();
-            }
-            if (latestEndTime == null || (subtask.getEndTime() != null && subtask.getEndTime().isAfter(latestEndTime))) {
-                latestEndTime = subtask.getEndTime();
-            }
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    // Копия с текущими агрегатами (статус, время, длительность), но без самих подзадач
+    public Epic copyWithoutSubtasks() {
+        Epic copy = new Epic(name, description);
+        copy.setId(id);
+        copy.status = status;
+        copy.setDuration(getDuration());
+        copy.setStartTime(getStartTime());
+        copy.endTime = endTime;
+        return copy;
+    }
+
+    // Независимая копия: свой список подзадач и свои агрегаты, сами подзадачи общие
+    public Epic copy() {
+        Epic copy = copyWithoutSubtasks();
+        copy.subtasks.putAll(subtasks);
+        copy.detachedKeys = detachedKeys;
+        System.arraycopy(statusCounts, 0, copy.statusCounts, 0, statusCounts.length);
+        copy.startTimes.putAll(startTimes);
+        copy.endTimes.putAll(endTimes);
+        copy.totalDuration = totalDuration;
+        return copy;
+    }
+
+    public List<Subtask> getSubtasks() {
+        return new ArrayList<>(subtaskView);
+    }
+
+    public Collection<Subtask> getSubtaskView() {
+        return subtaskView;
+    }
+
+    public Subtask getSubtask(int id) {
+        Member member = subtasks.get(id);
+        return member != null ? member.subtask : null;
+    }
+
+    public boolean containsSubtask(int id) {
+        return subtasks.containsKey(id);
+    }
+
+    public int getSubtaskCount() {
+        return subtasks.size();
+    }
+
+    public boolean removeSubtask(Subtask subtask) {
+        Integer key = keyOf(subtask);
+        return key != null && removeByKey(key);
+    }
 
-            if (subtask.getStatus() != Status.DONE) {
-                allDone = false;
+    public boolean removeSubtask(int id) {
+        return removeByKey(id);
+    }
+
+    public void removeSubtasks(Collection<Subtask> removed) {
+        for (Subtask subtask : removed) {
+            Integer key = keyOf(subtask);
+            if (key != null) {
+                exclude(subtasks.remove(key));
             }
-            if (subtask.getStatus() == Status.IN_PROGRESS) {
-                anyInProgress = true;
+        }
+        applyRollup();
+    }
+
+    public void clearSubtasks() {
+        subtasks.clear();
+        updateEpicDetails();
+    }
+
+    private void attach(Subtask subtask) {
+        int key = subtask.getId() != 0 ? subtask.getId() : --detachedKeys;
+        Member previous = subtasks.put(key, include(subtask));
+        if (previous != null) {
+            exclude(previous);
+        }
+    }
+
+    private boolean removeByKey(int key) {
+        Member removed = subtasks.remove(key);
+        if (removed == null) {
+            return false;
+        }
+        exclude(removed);
+        applyRollup();
+        return true;
+    }
+
+    private Integer keyOf(Subtask subtask) {
+        if (subtask.getId() != 0) {
+            return subtasks.containsKey(subtask.getId()) ? subtask.getId() : null;
+        }
+        for (Map.Entry<Integer, Member> entry : subtasks.entrySet()) {
+            if (entry.getKey() < 0 && entry.getValue().subtask == subtask) {
+                return entry.getKey();
             }
         }
+        return null;
+    }
+
+    private Member include(Subtask subtask) {
+        Member member = new Member(subtask);
+        statusCounts[member.status.ordinal()]++;
+        totalDuration = totalDuration.plus(member.duration);
+        increment(startTimes, member.startTime);
+        increment(endTimes, member.endTime);
+        return member;
+    }
 
-        this.duration = totalDuration;
-        this.startTime = earliestStartTime;
-        this.endTime = latestEndTime;
+    private void exclude(Member member) {
+        statusCounts[member.status.ordinal()]--;
+        totalDuration = totalDuration.minus(member.duration);
+        decrement(startTimes, member.startTime);
+        decrement(endTimes, member.endTime);
+    }
 
-        if (allDone) {
+    private void applyRollup() {
+        int count = subtasks.size();
+        setDuration(totalDuration);
+        setStartTime(startTimes.isEmpty() ? null : startTimes.firstKey());
+        this.endTime = endTimes.isEmpty() ? null : endTimes.lastKey();
+        if (count > 0 && statusCounts[Status.DONE.ordinal()] == count) {
             this.status = Status.DONE;
-        } else if (anyInProgress) {
+        } else if (statusCounts[Status.IN_PROGRESS.ordinal()] > 0) {
             this.status = Status.IN_PROGRESS;
         } else {
             this.status = Status.NEW;
         }
     }
 
-    public LocalDateTime getEndTime() {
-        return endTime;
+    private static void increment(TreeMap<LocalDateTime, Integer> times, LocalDateTime time) {
+        if (time != null) {
+            times.merge(time, 1, Integer::sum);
+        }
     }
 
-    public List<Subtask> getSubtasks() {
-        return new ArrayList<>(subtasks);
+    private static void decrement(TreeMap<LocalDateTime, Integer> times, LocalDateTime time) {
+        if (time != null) {
+            times.computeIfPresent(time, (key, count) -> count == 1 ? null : count - 1);
+        }
     }
 
-    public boolean removeSubtask(Subtask subtask) {
-        boolean removed = subtasks.remove(subtask);
-        if (removed) {
-            updateEpicDetails();
+    // Вклад подзадачи запоминается при добавлении: подзадачу могут изменить снаружи,
+    // а вычитать из агрегатов нужно именно те значения, которые были к ним прибавлены.
+    private static final class Member {
+        final Subtask subtask;
+        final Status status;
+        final Duration duration;
+        final LocalDateTime startTime;
+        final LocalDateTime endTime;
+
+        Member(Subtask subtask) {
+            this.subtask = subtask;
+            this.status = subtask.getStatus() != null ? subtask.getStatus() : Status.NEW;
+            this.duration = subtask.getDuration() != null ? subtask.getDuration() : Duration.ZERO;
+            this.startTime = subtask.getStartTime();
+            this.endTime = subtask.getEndTime();
         }
-        return removed;
     }
 
-    public void clearSubtasks() {
-        subtasks.clear();
-        updateEpicDetails();
+    private final class SubtaskView extends AbstractCollection<Subtask> {
+        @Override
+        public Iterator<Subtask> iterator() {
+            Iterator<Member> members = subtasks.values().iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return members.hasNext();
+                }
+
+                @Override
+                public Subtask next() {
+                    return members.next().subtask;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return subtasks.size();
+        }
     }
 
 }
@@ -4,22 +4,37 @@ import utils.Status;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Objects;
 
+// Время хранится примитивами (секунды от эпохи + наносекунды), конец вычисляется один раз при изменении.
+// Объекты java.time создаются только в геттерах, а сравнения в менеджере идут без аллокаций.
+// Оценка памяти на задачу (без строк, 64-битная JVM со сжатыми указателями):
+// было 136 байт (Task 40 + LocalDateTime с LocalDate и LocalTime 72 + Duration 24), стало 64 байта.
 public class Task {
+    // Эта оценка для кода, который считает память по задачам; при изменении полей ее нужно пересчитать
+    public static final long ESTIMATED_BYTES = 64;
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+
     protected int id;
     protected String name;
     protected String description;
     protected Status status;
-    protected Duration duration;
-    protected LocalDateTime startTime;
+    private long startSeconds = NO_TIME;
+    private int startNanos;
+    private long durationSeconds = NO_TIME;
+    private int durationNanos;
+    private long endSeconds = NO_TIME;
+    private int endNanos;
 
     public Task(String name, String description, Status status, Duration duration, LocalDateTime startTime) {
         this.name = name;
         this.description = description;
         this.status = status;
-        this.duration = duration;
-        this.startTime = startTime;
+        assignDuration(duration);
+        assignStartTime(startTime);
+        updateEnd();
     }
 
     public int getId() {
@@ -55,23 +70,101 @@ public class Task {
     }
 
     public Duration getDuration() {
-        return duration;
+        return durationSeconds != NO_TIME ? Duration.ofSeconds(durationSeconds, durationNanos) : null;
     }
 
     public void setDuration(Duration duration) {
-        this.duration = duration;
+        assignDuration(duration);
+        updateEnd();
     }
 
     public LocalDateTime getStartTime() {
-        return startTime;
+        return startSeconds != NO_TIME ? LocalDateTime.ofEpochSecond(startSeconds, startNanos, ZoneOffset.UTC) : null;
     }
 
     public void setStartTime(LocalDateTime startTime) {
-        this.startTime = startTime;
+        assignStartTime(startTime);
+        updateEnd();
     }
 
     public LocalDateTime getEndTime() {
-        return startTime != null && duration != null ? startTime.plus(duration) : null;
+        return endSeconds != NO_TIME ? LocalDateTime.ofEpochSecond(endSeconds, endNanos, ZoneOffset.UTC) : null;
+    }
+
+    public boolean hasTimeSlot() {
+        return endSeconds != NO_TIME;
+    }
+
+    public boolean hasStartTime() {
+        return startSeconds != NO_TIME;
+    }
+
+    // Начало и конец без создания LocalDateTime (секунды от эпохи в UTC и наносекунды).
+    // Имеют смысл, только если задано начало (для конца - если hasTimeSlot()).
+    public long getStartEpochSecond() {
+        return startSeconds;
+    }
+
+    public int getStartNano() {
+        return startNanos;
+    }
+
+    public long getEndEpochSecond() {
+        return endSeconds;
+    }
+
+    public int getEndNano() {
+        return endNanos;
+    }
+
+    // Сравнение начала этой задачи с началом другой; задачи без времени считаются самыми ранними.
+    public int compareStartTo(Task other) {
+        int bySeconds = Long.compare(startSeconds, other.startSeconds);
+        return bySeconds != 0 ? bySeconds : Integer.compare(startNanos, other.startNanos);
+    }
+
+    public boolean startsBeforeEndOf(Task other) {
+        return isBefore(startSeconds, startNanos, other.endSeconds, other.endNanos);
+    }
+
+    public boolean overlaps(Task other) {
+        return hasTimeSlot() && other.hasTimeSlot() && startsBeforeEndOf(other) && other.startsBeforeEndOf(this);
+    }
+
+    private static boolean isBefore(long seconds, int nanos, long otherSeconds, int otherNanos) {
+        return seconds < otherSeconds || seconds == otherSeconds && nanos < otherNanos;
+    }
+
+    // Конструктор пишет поля через эти private методы, а не через переопределяемые сеттеры
+    private void assignDuration(Duration duration) {
+        if (duration != null) {
+            durationSeconds = duration.getSeconds();
+            durationNanos = duration.getNano();
+        } else {
+            durationSeconds = NO_TIME;
+            durationNanos = 0;
+        }
+    }
+
+    private void assignStartTime(LocalDateTime startTime) {
+        if (startTime != null) {
+            startSeconds = startTime.toEpochSecond(ZoneOffset.UTC);
+            startNanos = startTime.getNano();
+        } else {
+            startSeconds = NO_TIME;
+            startNanos = 0;
+        }
+    }
+
+    private void updateEnd() {
+        if (startSeconds == NO_TIME || durationSeconds == NO_TIME) {
+            endSeconds = NO_TIME;
+            endNanos = 0;
+            return;
+        }
+        long nanos = (long) startNanos + durationNanos;
+        endSeconds = startSeconds + durationSeconds + nanos / 1_000_000_000;
+        endNanos = (int) (nanos % 1_000_000_000);
     }
 
     @Override
@@ -83,12 +176,14 @@ public class Task {
                 && Objects.equals(name, task.name)
                 && Objects.equals(description, task.description)
                 && status == task.status
-                && Objects.equals(duration, task.duration)
-                && Objects.equals(startTime, task.startTime);
+                && durationSeconds == task.durationSeconds
+                && durationNanos == task.durationNanos
+                && startSeconds == task.startSeconds
+                && startNanos == task.startNanos;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, name, description, status, duration, startTime);
+        return Objects.hash(id, name, description, status, durationSeconds, durationNanos, startSeconds, startNanos);
     }
 }
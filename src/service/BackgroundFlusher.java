@@ -0,0 +1,131 @@
+package service;
+
+class BackgroundFlusher {
+    private static final long MIN_RETRY_DELAY_MILLIS = 100;
+    private static final long MAX_RETRY_DELAY_MILLIS = 5_000;
+
+    private final Runnable flushAction;
+    private final long flushIntervalMillis;
+    private final int maxPendingOperations;
+    private final Thread thread;
+    private final Object lock = new Object();
+    private int pendingOperations;
+    private long firstPendingAt;
+    private boolean closed;
+    private volatile RuntimeException failure;
+    private long retryDelayMillis;
+    private long retryAt;
+
+    BackgroundFlusher(String name, Runnable flushAction, long flushIntervalMillis, int maxPendingOperations) {
+        this.flushAction = flushAction;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxPendingOperations = Math.max(1, maxPendingOperations);
+        this.thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Изменение уже применено в памяти и лежит в буфере, поэтому ошибка прошлой записи здесь не бросается:
+    // поток повторит запись сам, а ошибку можно узнать через getFailure()
+    void operationAdded() {
+        synchronized (lock) {
+            if (pendingOperations++ == 0) {
+                firstPendingAt = System.currentTimeMillis();
+                lock.notifyAll();
+            } else if (pendingOperations >= maxPendingOperations) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    // Последняя ошибка фоновой записи; сбрасывается после первой успешной записи
+    RuntimeException getFailure() {
+        return failure;
+    }
+
+    // Явная запись; при ошибке работа возвращается фоновому потоку, как после его собственной неудачи
+    void flush() {
+        synchronized (lock) {
+            pendingOperations = 0;
+        }
+        try {
+            flushAction.run();
+        } catch (RuntimeException e) {
+            recordFailure(e);
+            throw e;
+        }
+        synchronized (lock) {
+            failure = null;
+            retryDelayMillis = 0;
+        }
+    }
+
+    void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void run() {
+        while (awaitBatch()) {
+            try {
+                flushAction.run();
+                synchronized (lock) {
+                    failure = null;
+                    retryDelayMillis = 0;
+                }
+            } catch (RuntimeException e) {
+                recordFailure(e);
+            }
+        }
+    }
+
+    // Несохраненные данные остаются в буфере; повтор через растущую паузу
+    private void recordFailure(RuntimeException e) {
+        synchronized (lock) {
+            failure = e;
+            retryDelayMillis = Math.min(MAX_RETRY_DELAY_MILLIS,
+                    Math.max(MIN_RETRY_DELAY_MILLIS, retryDelayMillis * 2));
+            retryAt = System.currentTimeMillis() + retryDelayMillis;
+            if (pendingOperations++ == 0) {
+                firstPendingAt = System.currentTimeMillis();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    private boolean awaitBatch() {
+        synchronized (lock) {
+            try {
+                while (!closed) {
+                    if (pendingOperations == 0) {
+                        lock.wait();
+                        continue;
+                    }
+                    long now = System.currentTimeMillis();
+                    if (failure != null && retryAt > now) {
+                        lock.wait(retryAt - now);
+                        continue;
+                    }
+                    // Повтор после ошибки идет по своей паузе, не дожидаясь интервала пакета
+                    long waitMillis = firstPendingAt + flushIntervalMillis - now;
+                    if (failure != null || pendingOperations >= maxPendingOperations || waitMillis <= 0) {
+                        pendingOperations = 0;
+                        return true;
+                    }
+                    lock.wait(waitMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package service;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import utils.Status;
+import utils.TypeTask;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.Consumer;
+
+// Формат: MAGIC, VERSION, затем записи до конца файла.
+// Запись: id (int), тип и статус в одном байте, epicId (int, только у подзадач),
+// начало и длительность: секунды (long, NO_VALUE если не заданы) и наносекунды (int),
+// name и description (int длина + UTF-8).
+// Версия 1 хранила начало и длительность в минутах без остатка; такие файлы по-прежнему читаются.
+class BinarySnapshot {
+    static final int MAGIC = 0x4B414E42;
+    static final byte VERSION = 2;
+    private static final byte MINUTES_VERSION = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long NO_VALUE = Long.MIN_VALUE;
+    private static final int NULL_STRING = -1;
+    private static final TypeTask[] TYPES = TypeTask.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private BinarySnapshot() {
+    }
+
+    static boolean isBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(header);
+            return !header.hasRemaining() && header.getInt(0) == MAGIC;
+        }
+    }
+
+    static Writer writer(WritableByteChannel channel) throws IOException {
+        return new Writer(channel);
+    }
+
+    static int read(Path path, Consumer<Task> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Reader reader = new Reader(channel);
+            if (reader.readInt() != MAGIC) {
+                throw new IOException("Файл не является бинарным снимком: " + path);
+            }
+            byte version = reader.readByte();
+            if (version != VERSION && version != MINUTES_VERSION) {
+                throw new IOException("Неподдерживаемая версия снимка: " + version);
+            }
+            int maxId = 0;
+            while (reader.hasMore()) {
+                Task task = reader.readTask(version);
+                maxId = Math.max(maxId, task.getId());
+                consumer.accept(task);
+            }
+            return maxId;
+        }
+    }
+
+    static final class Writer {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private Writer(WritableByteChannel channel) throws IOException {
+            this.channel = channel;
+            buffer.putInt(MAGIC).put(VERSION);
+        }
+
+        void write(Task task) throws IOException {
+            TypeTask type = task instanceof Subtask ? TypeTask.SUBTASK : task instanceof Epic ? TypeTask.EPIC : TypeTask.TASK;
+            ensureRemaining(Integer.BYTES * 4 + 1 + Long.BYTES * 2);
+            buffer.putInt(task.getId());
+            buffer.put((byte) (type.ordinal() << 4 | task.getStatus().ordinal()));
+            if (type == TypeTask.SUBTASK) {
+                buffer.putInt(((Subtask) task).getEpicId());
+            }
+            LocalDateTime startTime = task.getStartTime();
+            buffer.putLong(startTime != null ? startTime.toEpochSecond(ZoneOffset.UTC) : NO_VALUE);
+            buffer.putInt(startTime != null ? startTime.getNano() : 0);
+            Duration duration = task.getDuration();
+            buffer.putLong(duration != null ? duration.getSeconds() : NO_VALUE);
+            buffer.putInt(duration != null ? duration.getNano() : 0);
+            writeString(task.getName());
+            writeString(task.getDescription());
+        }
+
+        void finish() throws IOException {
+            drain();
+        }
+
+        private void writeString(String value) throws IOException {
+            ensureRemaining(Integer.BYTES);
+            if (value == null) {
+                buffer.putInt(NULL_STRING);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(bytes.length);
+            if (bytes.length <= buffer.capacity()) {
+                ensureRemaining(bytes.length);
+                buffer.put(bytes);
+            } else {
+                drain();
+                ByteBuffer large = ByteBuffer.wrap(bytes);
+                while (large.hasRemaining()) {
+                    channel.write(large);
+                }
+            }
+        }
+
+        private void ensureRemaining(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    private static final class Reader {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private boolean endOfFile;
+
+        private Reader(FileChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        boolean hasMore() throws IOException {
+            return buffer.hasRemaining() || fill(1);
+        }
+
+        Task readTask(byte version) throws IOException {
+            int id = readInt();
+            int typeAndStatus = readByte();
+            TypeTask type = TYPES[typeAndStatus >>> 4 & 0x0F];
+            Status status = STATUSES[typeAndStatus & 0x0F];
+            int epicId = type == TypeTask.SUBTASK ? readInt() : 0;
+            LocalDateTime startTime;
+            Duration duration;
+            if (version == MINUTES_VERSION) {
+                long startMinute = readLong();
+                long durationMinutes = readLong();
+                startTime = startMinute != NO_VALUE
+                        ? LocalDateTime.ofEpochSecond(startMinute * 60, 0, ZoneOffset.UTC) : null;
+                duration = durationMinutes != NO_VALUE ? Duration.ofMinutes(durationMinutes) : null;
+            } else {
+                long startSeconds = readLong();
+                int startNanos = readInt();
+                long durationSeconds = readLong();
+                int durationNanos = readInt();
+                startTime = startSeconds != NO_VALUE
+                        ? LocalDateTime.ofEpochSecond(startSeconds, startNanos, ZoneOffset.UTC) : null;
+                duration = durationSeconds != NO_VALUE ? Duration.ofSeconds(durationSeconds, durationNanos) : null;
+            }
+            String name = readString();
+            String description = readString();
+
+            Task task = switch (type) {
+                case EPIC -> new Epic(name, description);
+                case SUBTASK -> new Subtask(name, description, epicId, status, duration, startTime);
+                case TASK -> new Task(name, description, status, duration, startTime);
+            };
+            task.setId(id);
+            return task;
+        }
+
+        int readInt() throws IOException {
+            require(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        byte readByte() throws IOException {
+            require(1);
+            return buffer.get();
+        }
+
+        private long readLong() throws IOException {
+            require(Long.BYTES);
+            return buffer.getLong();
+        }
+
+        private String readString() throws IOException {
+            int length = readInt();
+            if (length == NULL_STRING) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                require(1);
+                int chunk = Math.min(buffer.remaining(), length - offset);
+                buffer.get(bytes, offset, chunk);
+                offset += chunk;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() < bytes && !fill(bytes)) {
+                throw new EOFException("Снимок обрывается на середине записи");
+            }
+        }
+
+        private boolean fill(int bytes) throws IOException {
+            buffer.compact();
+            while (buffer.position() < bytes && !endOfFile) {
+                if (channel.read(buffer) < 0) {
+                    endOfFile = true;
+                }
+            }
+            buffer.flip();
+            return buffer.remaining() >= bytes;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package service;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+
+// Пакетные операции, общие для InMemoryTaskManager и ConcurrentTaskManager.
+// Сначала проверяется весь пакет и только потом меняется доска, поэтому при ошибке не применяется
+// ни одно изменение; агрегаты эпика пересчитываются один раз на пакет.
+// Блокировки и публикация версий остаются за менеджером: в changed складываются задачи и эпики,
+// которые изменил пакет (null, если менеджеру это не нужно).
+final class BoardBatch {
+    private final IdTable<Task> tasks;
+    private final IdTable<Subtask> subtasks;
+    private final IdTable<Epic> epics;
+    private final ScheduleIndex prioritizedTasks;
+    private final StatusIndex statusIndex;
+    private final HistoryManager historyManager;
+    private final TaskEventBus events;
+    private final IntSupplier nextId;
+
+    BoardBatch(IdTable<Task> tasks, IdTable<Subtask> subtasks, IdTable<Epic> epics,
+               ScheduleIndex prioritizedTasks, StatusIndex statusIndex, HistoryManager historyManager,
+               TaskEventBus events, IntSupplier nextId) {
+        this.tasks = tasks;
+        this.subtasks = subtasks;
+        this.epics = epics;
+        this.prioritizedTasks = prioritizedTasks;
+        this.statusIndex = statusIndex;
+        this.historyManager = historyManager;
+        this.events = events;
+        this.nextId = nextId;
+    }
+
+    List<Task> createAll(Collection<? extends Task> newTasks, List<Task> changed) {
+        for (Task task : newTasks) {
+            if (task instanceof Subtask) {
+                checkEpicExists(((Subtask) task).getEpicId());
+            }
+        }
+        prioritizedTasks.checkBatch(newTasks, id -> false);
+
+        List<Task> created = new ArrayList<>(newTasks.size());
+        Map<Integer, List<Subtask>> subtasksByEpic = new LinkedHashMap<>();
+        for (Task task : newTasks) {
+            task.setId(nextId.getAsInt());
+            if (task instanceof Epic) {
+                epics.put(task.getId(), (Epic) task);
+            } else if (task instanceof Subtask) {
+                Subtask subtask = (Subtask) task;
+                subtasks.put(subtask.getId(), subtask);
+                subtasksByEpic.computeIfAbsent(subtask.getEpicId(), id -> new ArrayList<>()).add(subtask);
+                prioritizedTasks.add(subtask);
+            } else {
+                tasks.put(task.getId(), task);
+                prioritizedTasks.add(task);
+            }
+            statusIndex.put(task);
+            created.add(task);
+            events.created(task);
+        }
+        Map<Integer, Task> epicImages = epicImages(subtasksByEpic.keySet());
+        attachToEpics(subtasksByEpic);
+        publishEpicUpdates(epicImages);
+        if (changed != null) {
+            changed.addAll(created);
+            addEpics(changed, subtasksByEpic.keySet());
+        }
+        return created;
+    }
+
+    void updateAll(Collection<? extends Task> updatedTasks, List<Task> changed) {
+        Set<Integer> ids = new HashSet<>();
+        for (Task task : updatedTasks) {
+            boolean exists = task instanceof Epic ? epics.containsKey(task.getId())
+                    : task instanceof Subtask ? subtasks.containsKey(task.getId())
+                    : tasks.containsKey(task.getId());
+            if (!exists) {
+                throw new IllegalArgumentException("Задача с ID " + task.getId() + " не существует.");
+            }
+            if (task instanceof Subtask) {
+                checkEpicExists(((Subtask) task).getEpicId());
+            }
+            ids.add(task.getId());
+        }
+        prioritizedTasks.checkBatch(updatedTasks, ids::contains);
+
+        Map<Integer, List<Subtask>> subtasksByEpic = new LinkedHashMap<>();
+        Map<Integer, List<Subtask>> movedByEpic = new LinkedHashMap<>();
+        // Сначала освобождаются все старые слоты, иначе задачи пакета не смогут поменяться местами
+        for (Task task : updatedTasks) {
+            if (!(task instanceof Epic)) {
+                prioritizedTasks.remove(task instanceof Subtask ? subtasks.get(task.getId()) : tasks.get(task.getId()));
+            }
+        }
+        for (Task task : updatedTasks) {
+            if (task instanceof Epic) {
+                Epic existingEpic = epics.get(task.getId());
+                Task before = events.image(existingEpic);
+                existingEpic.setName(task.getName());
+                existingEpic.setDescription(task.getDescription());
+                if (changed != null) {
+                    changed.add(existingEpic);
+                }
+                events.updated(before, existingEpic);
+                continue;
+            }
+            Task existingTask;
+            if (task instanceof Subtask) {
+                Subtask subtask = (Subtask) task;
+                Subtask existingSubtask = subtasks.put(subtask.getId(), subtask);
+                if (existingSubtask.getEpicId() != subtask.getEpicId()) {
+                    movedByEpic.computeIfAbsent(existingSubtask.getEpicId(), id -> new ArrayList<>())
+                            .add(existingSubtask);
+                }
+                subtasksByEpic.computeIfAbsent(subtask.getEpicId(), id -> new ArrayList<>()).add(subtask);
+                existingTask = existingSubtask;
+            } else {
+                existingTask = tasks.put(task.getId(), task);
+            }
+            prioritizedTasks.add(task);
+            statusIndex.put(task);
+            if (changed != null) {
+                changed.add(task);
+            }
+            events.updated(events.image(existingTask), task);
+        }
+        Set<Integer> epicIds = new LinkedHashSet<>(movedByEpic.keySet());
+        epicIds.addAll(subtasksByEpic.keySet());
+        Map<Integer, Task> epicImages = epicImages(epicIds);
+        detachFromEpics(movedByEpic);
+        attachToEpics(subtasksByEpic);
+        publishEpicUpdates(epicImages);
+        if (changed != null) {
+            addEpics(changed, epicIds);
+        }
+    }
+
+    // Возвращает все удаленные задачи, включая подзадачи удаленных эпиков
+    List<Task> deleteWhere(Predicate<? super Task> filter, List<Task> changed) {
+        List<Task> removed = new ArrayList<>();
+        for (Epic epic : List.copyOf(epics.values())) {
+            if (!filter.test(epic)) {
+                continue;
+            }
+            epics.remove(epic.getId());
+            for (Subtask subtask : epic.getSubtaskView()) {
+                subtasks.remove(subtask.getId());
+                unindex(subtask);
+                removed.add(subtask);
+                events.deleted(subtask);
+            }
+            unindex(epic);
+            removed.add(epic);
+            events.deleted(epic);
+        }
+        Map<Integer, List<Subtask>> subtasksByEpic = new LinkedHashMap<>();
+        for (Subtask subtask : List.copyOf(subtasks.values())) {
+            if (filter.test(subtask)) {
+                subtasks.remove(subtask.getId());
+                subtasksByEpic.computeIfAbsent(subtask.getEpicId(), id -> new ArrayList<>()).add(subtask);
+                unindex(subtask);
+                removed.add(subtask);
+                events.deleted(subtask);
+            }
+        }
+        Map<Integer, Task> epicImages = epicImages(subtasksByEpic.keySet());
+        detachFromEpics(subtasksByEpic);
+        publishEpicUpdates(epicImages);
+        for (Task task : List.copyOf(tasks.values())) {
+            if (filter.test(task)) {
+                tasks.remove(task.getId());
+                unindex(task);
+                removed.add(task);
+                events.deleted(task);
+            }
+        }
+        if (changed != null) {
+            addEpics(changed, subtasksByEpic.keySet());
+        }
+        return removed;
+    }
+
+    // Образы эпиков до пересчета агрегатов пакетом; пустая карта, если подписчиков нет
+    private Map<Integer, Task> epicImages(Collection<Integer> epicIds) {
+        Map<Integer, Task> images = new LinkedHashMap<>();
+        if (events.isActive()) {
+            for (Integer epicId : epicIds) {
+                Epic epic = epics.get(epicId);
+                if (epic != null) {
+                    images.put(epicId, events.image(epic));
+                }
+            }
+        }
+        return images;
+    }
+
+    private void publishEpicUpdates(Map<Integer, Task> epicImages) {
+        for (Map.Entry<Integer, Task> entry : epicImages.entrySet()) {
+            events.epicRecalculated(entry.getValue(), epics.get(entry.getKey()));
+        }
+    }
+
+    private void addEpics(List<Task> changed, Collection<Integer> epicIds) {
+        for (Integer epicId : epicIds) {
+            Epic epic = epics.get(epicId);
+            if (epic != null) {
+                changed.add(epic);
+            }
+        }
+    }
+
+    private void attachToEpics(Map<Integer, List<Subtask>> subtasksByEpic) {
+        for (Map.Entry<Integer, List<Subtask>> entry : subtasksByEpic.entrySet()) {
+            Epic epic = epics.get(entry.getKey());
+            if (epic != null) {
+                epic.addSubtasks(entry.getValue());
+                statusIndex.put(epic);
+            }
+        }
+    }
+
+    private void detachFromEpics(Map<Integer, List<Subtask>> subtasksByEpic) {
+        for (Map.Entry<Integer, List<Subtask>> entry : subtasksByEpic.entrySet()) {
+            Epic epic = epics.get(entry.getKey());
+            if (epic != null) {
+                epic.removeSubtasks(entry.getValue());
+                statusIndex.put(epic);
+            }
+        }
+    }
+
+    private void checkEpicExists(int epicId) {
+        if (!epics.containsKey(epicId)) {
+            throw new IllegalArgumentException("model.Epic с ID " + epicId + " не существует.");
+        }
+    }
+
+    private void unindex(Task task) {
+        historyManager.remove(task.getId());
+        prioritizedTasks.remove(task);
+        statusIndex.remove(task);
+    }
+}
@@ -0,0 +1,182 @@
+package service;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+// Неизменяемое состояние доски на момент одной версии. Хранит копии задач в постоянных деревьях,
+// поэтому новая версия создается копированием нескольких путей, а читатель получает снимок за O(1)
+// и видит согласованную доску, сколько бы записей ни произошло после.
+// Задачи внутри снимка общие для всех читателей, поэтому наружу отдаются только их копии:
+// изменение полученной задачи не затрагивает ни этот, ни следующие снимки.
+// Эпики в снимке хранятся без подзадач: их подзадачи возвращает getSubtaskByEpic по отдельному
+// постоянному индексу эпик -> подзадачи, который обновляется вместе с версией.
+public final class BoardSnapshot {
+    static final BoardSnapshot EMPTY = new BoardSnapshot(0, PersistentIntMap.empty(),
+            PersistentIntMap.empty(), PersistentIntMap.empty(), PersistentIntMap.empty());
+
+    private static final Comparator<Task> BY_START_AND_ID = Comparator.comparing(Task::getStartTime)
+            .thenComparingInt(Task::getId);
+
+    private final long version;
+    private final PersistentIntMap<Task> tasks;
+    private final PersistentIntMap<Subtask> subtasks;
+    private final PersistentIntMap<Epic> epics;
+    // Подзадачи каждого эпика по id; эпик без подзадач в индекс не попадает
+    private final PersistentIntMap<PersistentIntMap<Subtask>> subtasksByEpic;
+    // Порядок по времени начала считается при первом запросе и дальше переиспользуется: снимок не меняется
+    private volatile List<Task> prioritized;
+
+    private BoardSnapshot(long version, PersistentIntMap<Task> tasks, PersistentIntMap<Subtask> subtasks,
+                          PersistentIntMap<Epic> epics, PersistentIntMap<PersistentIntMap<Subtask>> subtasksByEpic) {
+        this.version = version;
+        this.tasks = tasks;
+        this.subtasks = subtasks;
+        this.epics = epics;
+        this.subtasksByEpic = subtasksByEpic;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Task> getAllTasks() {
+        return copies(tasks.values());
+    }
+
+    public List<Subtask> getAllSubtasks() {
+        return copies(subtasks.values());
+    }
+
+    public List<Epic> getAllEpics() {
+        return copies(epics.values());
+    }
+
+    public Task getTaskById(int id) {
+        return copy(tasks.get(id));
+    }
+
+    public Subtask getSubtaskById(int id) {
+        return copy(subtasks.get(id));
+    }
+
+    public Epic getEpicById(int id) {
+        return copy(epics.get(id));
+    }
+
+    // Обходит только подзадачи этого эпика, остальная доска не просматривается
+    public List<Subtask> getSubtaskByEpic(int epicId) {
+        PersistentIntMap<Subtask> epicSubtasks = subtasksByEpic.get(epicId);
+        return epicSubtasks == null ? new ArrayList<>() : copies(epicSubtasks.values());
+    }
+
+    // Первый вызов на версии сортирует задачи со временем за O(n log n), следующие только копируют список
+    public List<Task> getPrioritizedTasks() {
+        List<Task> sorted = prioritized;
+        if (sorted == null) {
+            sorted = new ArrayList<>();
+            for (Task task : tasks.values()) {
+                if (task.getStartTime() != null) {
+                    sorted.add(task);
+                }
+            }
+            for (Subtask subtask : subtasks.values()) {
+                if (subtask.getStartTime() != null) {
+                    sorted.add(subtask);
+                }
+            }
+            sorted.sort(BY_START_AND_ID);
+            prioritized = sorted;
+        }
+        return copies(sorted);
+    }
+
+    // Следующая версия: все изменения одной операции применяются вместе и видны читателям разом
+    BoardSnapshot with(Collection<? extends Task> changed, Collection<? extends Task> removed) {
+        PersistentIntMap<Task> newTasks = tasks;
+        PersistentIntMap<Subtask> newSubtasks = subtasks;
+        PersistentIntMap<Epic> newEpics = epics;
+        PersistentIntMap<PersistentIntMap<Subtask>> newByEpic = subtasksByEpic;
+        for (Task task : removed) {
+            if (task instanceof Subtask) {
+                newByEpic = unlink(newByEpic, newSubtasks.get(task.getId()));
+                newSubtasks = newSubtasks.remove(task.getId());
+            } else if (task instanceof Epic) {
+                newEpics = newEpics.remove(task.getId());
+            } else {
+                newTasks = newTasks.remove(task.getId());
+            }
+        }
+        for (Task task : changed) {
+            if (task instanceof Subtask) {
+                Subtask subtask = (Subtask) task;
+                newByEpic = link(unlink(newByEpic, newSubtasks.get(subtask.getId())), subtask);
+                newSubtasks = newSubtasks.put(subtask.getId(), subtask);
+            } else if (task instanceof Epic) {
+                newEpics = newEpics.put(task.getId(), (Epic) task);
+            } else {
+                newTasks = newTasks.put(task.getId(), task);
+            }
+        }
+        return new BoardSnapshot(version + 1, newTasks, newSubtasks, newEpics, newByEpic);
+    }
+
+    private static PersistentIntMap<PersistentIntMap<Subtask>> link(
+            PersistentIntMap<PersistentIntMap<Subtask>> byEpic, Subtask subtask) {
+        PersistentIntMap<Subtask> epicSubtasks = byEpic.get(subtask.getEpicId());
+        if (epicSubtasks == null) {
+            epicSubtasks = PersistentIntMap.empty();
+        }
+        return byEpic.put(subtask.getEpicId(), epicSubtasks.put(subtask.getId(), subtask));
+    }
+
+    // Старая версия подзадачи уходит из индекса своего эпика; null - подзадачи в снимке не было
+    private static PersistentIntMap<PersistentIntMap<Subtask>> unlink(
+            PersistentIntMap<PersistentIntMap<Subtask>> byEpic, Subtask subtask) {
+        if (subtask == null) {
+            return byEpic;
+        }
+        PersistentIntMap<Subtask> epicSubtasks = byEpic.get(subtask.getEpicId());
+        if (epicSubtasks == null) {
+            return byEpic;
+        }
+        epicSubtasks = epicSubtasks.remove(subtask.getId());
+        return epicSubtasks.isEmpty() ? byEpic.remove(subtask.getEpicId())
+                : byEpic.put(subtask.getEpicId(), epicSubtasks);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Task> T copy(T task) {
+        return task != null ? (T) freeze(task) : null;
+    }
+
+    private static <T extends Task> List<T> copies(Collection<T> source) {
+        List<T> result = new ArrayList<>(source.size());
+        for (T task : source) {
+            result.add(copy(task));
+        }
+        return result;
+    }
+
+    // Копия, которую можно положить в снимок: дальнейшие изменения исходной задачи ее не затронут
+    static Task freeze(Task task) {
+        Task copy;
+        if (task instanceof Subtask) {
+            Subtask subtask = (Subtask) task;
+            copy = new Subtask(subtask.getName(), subtask.getDescription(), subtask.getEpicId(),
+                    subtask.getStatus(), subtask.getDuration(), subtask.getStartTime());
+        } else if (task instanceof Epic) {
+            return ((Epic) task).copyWithoutSubtasks();
+        } else {
+            copy = new Task(task.getName(), task.getDescription(), task.getStatus(),
+                    task.getDuration(), task.getStartTime());
+        }
+        copy.setId(task.getId());
+        return copy;
+    }
+}
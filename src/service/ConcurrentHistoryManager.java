@@ -0,0 +1,108 @@
+package service;
+
+import model.Task;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Просмотры и удаления сначала попадают в неблокирующую очередь, а в упорядоченную историю
+// их переносит тот поток, которому удалось взять drainLock. Очередь сохраняет порядок вызовов,
+// поэтому getHistory() возвращает то же, что вернул бы InMemoryHistoryManager.
+public class ConcurrentHistoryManager implements HistoryManager {
+    private static final int DRAIN_THRESHOLD = 64;
+
+    private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingEvents = new AtomicInteger();
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final HistoryManager history;
+
+    public ConcurrentHistoryManager() {
+        this(new InMemoryHistoryManager());
+    }
+
+    ConcurrentHistoryManager(HistoryManager history) {
+        this.history = history;
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) {
+            return;
+        }
+        record(new Event(task.getId(), task));
+    }
+
+    @Override
+    public void remove(int id) {
+        record(new Event(id, null));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        drainLock.lock();
+        try {
+            drain();
+            return history.getHistory();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        drainLock.lock();
+        try {
+            drain();
+            return history.getHistory(offset, limit);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        drainLock.lock();
+        try {
+            drain();
+            return history.size();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void record(Event event) {
+        events.offer(event);
+        if (pendingEvents.incrementAndGet() >= DRAIN_THRESHOLD && drainLock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    private void drain() {
+        Event event;
+        while ((event = events.poll()) != null) {
+            pendingEvents.decrementAndGet();
+            if (event.task != null) {
+                history.add(event.task);
+            } else {
+                history.remove(event.id);
+            }
+        }
+    }
+
+    private static final class Event {
+        final int id;
+        final Task task;
+
+        Event(int id, Task task) {
+            this.id = id;
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,632 @@
+package service;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import utils.Managers;
+import utils.Status;
+import utils.TypeTask;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Порядок захвата блокировок: блокировка эпика, затем scheduleLock.
+// Эпики меняются на месте под блокировкой своей полосы, поэтому наружу отдаются их копии, снятые под ней же.
+// Каждая запись публикует новую версию снимка доски (snapshot) под теми же блокировками;
+// читатели снимков блокировок не берут и писателей не задерживают.
+public class ConcurrentTaskManager implements TaskManager, TaskManagerGauges {
+    private static final int EPIC_LOCK_STRIPES = 64;
+
+    private final AtomicInteger idCounter = new AtomicInteger(1);
+
+    // Карты упорядочены по id: страница одного типа берется из tailMap и не обходит id других типов
+    private final ConcurrentNavigableMap<Integer, Task> tasks = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<Integer, Subtask> subtasks = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<Integer, Epic> epics = new ConcurrentSkipListMap<>();
+    private final HistoryManager historyManager = Managers.getConcurrentHistory();
+    private final ScheduleIndex prioritizedTasks = ScheduleIndex.concurrent();
+    private final StatusIndex statusIndex = new StatusIndex(ConcurrentHashMap::new);
+    private final ReentrantLock scheduleLock = new ReentrantLock();
+    private final Object[] epicLocks = new Object[EPIC_LOCK_STRIPES];
+    private final AtomicReference<BoardSnapshot> board = new AtomicReference<>(BoardSnapshot.EMPTY);
+    private final TaskEventBus events = new TaskEventBus();
+    private final BoardBatch batch = new BoardBatch(IdTable.of(tasks), IdTable.of(subtasks), IdTable.of(epics),
+            prioritizedTasks, statusIndex, historyManager, events, idCounter::getAndIncrement);
+
+    public ConcurrentTaskManager() {
+        for (int i = 0; i < epicLocks.length; i++) {
+            epicLocks[i] = new Object();
+        }
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        scheduleLock.lock();
+        try {
+            if (prioritizedTasks.hasIntersection(task)) {
+                throw new IllegalArgumentException("Время задачи пересекается с существующими задачами.");
+            }
+            task.setId(idCounter.getAndIncrement());
+            tasks.put(task.getId(), task);
+            prioritizedTasks.add(task);
+            statusIndex.put(task);
+            publish(List.of(task), List.of());
+            events.created(task);
+        } finally {
+            scheduleLock.unlock();
+        }
+        return task;
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        synchronized (epicLock(subtask.getEpicId())) {
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic == null) {
+                throw new IllegalArgumentException("model.Epic с ID " + subtask.getEpicId() + " не существует.");
+            }
+            scheduleLock.lock();
+            try {
+                if (prioritizedTasks.hasIntersection(subtask)) {
+                    throw new IllegalArgumentException("Время подзадачи пересекается с существующими подзадачами.");
+                }
+                subtask.setId(idCounter.getAndIncrement());
+                prioritizedTasks.add(subtask);
+            } finally {
+                scheduleLock.unlock();
+            }
+            subtasks.put(subtask.getId(), subtask);
+            Task epicBefore = events.image(epic);
+            epic.addSubtask(subtask);
+            statusIndex.put(subtask);
+            statusIndex.put(epic);
+            publish(List.of(subtask, epic), List.of());
+            events.created(subtask);
+            events.epicRecalculated(epicBefore, epic);
+        }
+        return subtask;
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        epic.setId(idCounter.getAndIncrement());
+        synchronized (epicLock(epic.getId())) {
+            epics.put(epic.getId(), epic);
+            statusIndex.put(epic);
+            publish(List.of(epic), List.of());
+            events.created(epic);
+        }
+        return epic;
+    }
+
+    @Override
+    public List<Task> createAll(Collection<? extends Task> newTasks) {
+        return underAllLocks(0, () -> {
+            List<Task> changed = new ArrayList<>(newTasks.size());
+            List<Task> created = batch.createAll(newTasks, changed);
+            publish(changed, List.of());
+            return created;
+        });
+    }
+
+    @Override
+    public void updateAll(Collection<? extends Task> updatedTasks) {
+        underAllLocks(0, () -> {
+            List<Task> changed = new ArrayList<>(updatedTasks.size());
+            batch.updateAll(updatedTasks, changed);
+            publish(changed, List.of());
+            return null;
+        });
+    }
+
+    @Override
+    public List<Task> deleteWhere(Predicate<? super Task> filter) {
+        return underAllLocks(0, () -> {
+            List<Task> changed = new ArrayList<>();
+            List<Task> removed = batch.deleteWhere(filter, changed);
+            publish(changed, removed);
+            return removed;
+        });
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return List.copyOf(tasks.values());
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return List.copyOf(subtasks.values());
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        List<Epic> copies = new ArrayList<>();
+        for (Epic epic : epics.values()) {
+            copies.add(copyOf(epic));
+        }
+        return copies;
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        Task task = tasks.get(id);
+        if (task != null) {
+            historyManager.add(task);
+        }
+        return task;
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        Subtask subtask = subtasks.get(id);
+        if (subtask != null) {
+            historyManager.add(subtask);
+        }
+        return subtask;
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        Epic epic = epics.get(id);
+        if (epic != null) {
+            historyManager.add(epic);
+            return copyOf(epic);
+        }
+        return null;
+    }
+
+    @Override
+    public List<Subtask> getSubtaskByEpic(int epicId) {
+        synchronized (epicLock(epicId)) {
+            Epic epic = epics.get(epicId);
+            return epic != null ? new ArrayList<>(epic.getSubtaskView()) : new ArrayList<>();
+        }
+    }
+
+    @Override
+    public List<Task> getByStatus(Status status) {
+        return readable(statusIndex.get(status));
+    }
+
+    @Override
+    public List<Task> getByType(TypeTask type) {
+        switch (type) {
+            case SUBTASK:
+                return List.<Task>copyOf(subtasks.values());
+            case EPIC:
+                return List.copyOf(getAllEpics());
+            default:
+                return List.copyOf(tasks.values());
+        }
+    }
+
+    @Override
+    public List<Task> getByTypeAndStatus(TypeTask type, Status status) {
+        return readable(statusIndex.get(type, status));
+    }
+
+    // Слабо согласованные потоки ConcurrentSkipListMap: изменения во время обхода не мешают чтению
+    @Override
+    public Stream<Task> stream(TypeTask type) {
+        switch (type) {
+            case SUBTASK:
+                return subtasks.values().stream().map(Task.class::cast);
+            case EPIC:
+                return epics.values().stream().map(this::copyOf);
+            default:
+                return tasks.values().stream();
+        }
+    }
+
+    // Страница начинается поиском afterId в карте своего типа: O(log n + limit),
+    // id задач других типов не просматриваются
+    @Override
+    public List<Task> getPage(TypeTask type, int afterId, int limit) {
+        checkLimit(limit);
+        ConcurrentNavigableMap<Integer, ? extends Task> source = type == TypeTask.SUBTASK ? subtasks
+                : type == TypeTask.EPIC ? epics : tasks;
+        List<Task> page = new ArrayList<>(Math.min(limit, 64));
+        for (Iterator<? extends Task> iterator = source.tailMap(afterId, false).values().iterator();
+             iterator.hasNext() && page.size() < limit; ) {
+            page.add(readable(iterator.next()));
+        }
+        return page;
+    }
+
+    @Override
+    public boolean contains(TypeTask type, int id) {
+        switch (type) {
+            case SUBTASK:
+                return subtasks.containsKey(id);
+            case EPIC:
+                return epics.containsKey(id);
+            default:
+                return tasks.containsKey(id);
+        }
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        scheduleLock.lock();
+        try {
+            Task existingTask = tasks.get(task.getId());
+            if (existingTask == null) {
+                throw new IllegalArgumentException("model.Task с ID " + task.getId() + " не существует.");
+            }
+            if (prioritizedTasks.hasIntersection(task)) {
+                throw new IllegalArgumentException("Время задачи пересекается с существующей задачей.");
+            }
+            prioritizedTasks.remove(existingTask);
+            tasks.put(task.getId(), task);
+            prioritizedTasks.add(task);
+            statusIndex.put(task);
+            publish(List.of(task), List.of());
+            events.updated(events.image(existingTask), task);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    // Подзадача могла сменить эпик: берутся блокировки старого и нового эпиков (по возрастанию полосы),
+    // иначе два обновления одной подзадачи с разными epicId не были бы упорядочены
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        // Повтор идет после выхода из обеих блокировок: иначе новая пара полос бралась бы поверх старой
+        // не по возрастанию, и два обновления могли бы ждать друг друга
+        while (true) {
+            Subtask current = subtasks.get(subtask.getId());
+            if (current == null) {
+                throw new IllegalArgumentException("model.Subtask с ID " + subtask.getId() + " не существует.");
+            }
+            int oldStripe = stripe(current.getEpicId());
+            int newStripe = stripe(subtask.getEpicId());
+            synchronized (epicLocks[Math.min(oldStripe, newStripe)]) {
+                synchronized (epicLocks[Math.max(oldStripe, newStripe)]) {
+                    if (subtasks.get(subtask.getId()) != current) {
+                        // подзадачу успели изменить или удалить, пока ожидались блокировки: берутся актуальные полосы
+                        continue;
+                    }
+                    replaceSubtask(current, subtask);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void replaceSubtask(Subtask existingSubtask, Subtask subtask) {
+        scheduleLock.lock();
+        try {
+            if (prioritizedTasks.hasIntersection(subtask)) {
+                throw new IllegalArgumentException("Время подзадачи пересекается с существующей подзадачей.");
+            }
+            prioritizedTasks.remove(existingSubtask);
+            prioritizedTasks.add(subtask);
+        } finally {
+            scheduleLock.unlock();
+        }
+        Epic epic = epics.get(subtask.getEpicId());
+        Task epicBefore = events.image(epic);
+        Epic oldEpic = null;
+        Task oldEpicBefore = null;
+        if (existingSubtask.getEpicId() != subtask.getEpicId()) {
+            oldEpic = epics.get(existingSubtask.getEpicId());
+            oldEpicBefore = events.image(oldEpic);
+            if (oldEpic != null) {
+                oldEpic.removeSubtask(existingSubtask.getId());
+                statusIndex.put(oldEpic);
+            }
+        }
+        if (epic != null) {
+            epic.replaceSubtask(existingSubtask, subtask);
+            statusIndex.put(epic);
+        }
+        subtasks.put(subtask.getId(), subtask);
+        statusIndex.put(subtask);
+        List<Task> changed = new ArrayList<>(3);
+        changed.add(subtask);
+        if (epic != null) {
+            changed.add(epic);
+        }
+        if (oldEpic != null) {
+            changed.add(oldEpic);
+        }
+        publish(changed, List.of());
+        events.updated(events.image(existingSubtask), subtask);
+        events.epicRecalculated(oldEpicBefore, oldEpic);
+        events.epicRecalculated(epicBefore, epic);
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        synchronized (epicLock(epic.getId())) {
+            Epic existingEpic = epics.get(epic.getId());
+            if (existingEpic == null) {
+                throw new IllegalArgumentException("model.Epic с ID " + epic.getId() + " не существует.");
+            }
+            Task before = events.image(existingEpic);
+            existingEpic.setName(epic.getName());
+            existingEpic.setDescription(epic.getDescription());
+            publish(List.of(existingEpic), List.of());
+            events.updated(before, existingEpic);
+        }
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        scheduleLock.lock();
+        try {
+            Task task = tasks.remove(id);
+            if (task != null) {
+                prioritizedTasks.remove(task);
+                statusIndex.remove(task);
+                historyManager.remove(id);
+                publish(List.of(), List.of(task));
+                events.deleted(task);
+            }
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        Subtask subtask = subtasks.get(id);
+        if (subtask == null) {
+            return;
+        }
+        synchronized (epicLock(subtask.getEpicId())) {
+            if (!subtasks.remove(id, subtask)) {
+                return;
+            }
+            Epic epic = epics.get(subtask.getEpicId());
+            Task epicBefore = events.image(epic);
+            if (epic != null) {
+                epic.removeSubtask(subtask.getId());
+                statusIndex.put(epic);
+            }
+            statusIndex.remove(subtask);
+            unschedule(subtask);
+            historyManager.remove(id);
+            publish(epic != null ? List.of(epic) : List.of(), List.of(subtask));
+            events.deleted(subtask);
+            events.epicRecalculated(epicBefore, epic);
+        }
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        synchronized (epicLock(id)) {
+            Epic epic = epics.remove(id);
+            if (epic != null) {
+                List<Task> removed = new ArrayList<>(epic.getSubtaskView());
+                for (Subtask subtask : epic.getSubtaskView()) {
+                    subtasks.remove(subtask.getId());
+                    statusIndex.remove(subtask);
+                    unschedule(subtask);
+                    historyManager.remove(subtask.getId());
+                }
+                statusIndex.remove(epic);
+                historyManager.remove(id);
+                removed.add(epic);
+                publish(List.of(), removed);
+                for (Task task : removed) {
+                    events.deleted(task);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        for (Integer id : tasks.keySet()) {
+            deleteTask(id);
+        }
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        for (Epic epic : epics.values()) {
+            synchronized (epicLock(epic.getId())) {
+                List<Task> removed = new ArrayList<>(epic.getSubtaskView());
+                Task epicBefore = removed.isEmpty() ? null : events.image(epic);
+                for (Subtask subtask : epic.getSubtaskView()) {
+                    subtasks.remove(subtask.getId());
+                    statusIndex.remove(subtask);
+                    unschedule(subtask);
+                    historyManager.remove(subtask.getId());
+                    events.deleted(subtask);
+                }
+                epic.clearSubtasks();
+                statusIndex.put(epic);
+                // эпик мог быть удален, пока ожидалась его блокировка: в снимок он возвращаться не должен
+                boolean alive = epics.get(epic.getId()) == epic;
+                publish(alive ? List.of(epic) : List.of(), removed);
+                events.epicRecalculated(alive ? epicBefore : null, epic);
+            }
+        }
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        for (Integer id : epics.keySet()) {
+            deleteEpic(id);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        deleteAllEpics();
+        deleteAllTasks();
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return readable(historyManager.getHistory());
+    }
+
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Смещение не может быть отрицательным.");
+        }
+        checkLimit(limit);
+        return readable(historyManager.getHistory(offset, limit));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return prioritizedTasks.toList();
+    }
+
+    @Override
+    public Stream<Task> streamPrioritizedTasks() {
+        return prioritizedTasks.stream();
+    }
+
+    // Слабо согласованное представление поверх ConcurrentSkipListMap, как и его итераторы
+    @Override
+    public Collection<Task> getTasksBetween(LocalDateTime from, LocalDateTime to) {
+        return prioritizedTasks.between(from, to);
+    }
+
+    @Override
+    public Stream<Task> getNextTasks(LocalDateTime after, int limit) {
+        return prioritizedTasks.startingAfter(after, limit);
+    }
+
+    @Override
+    public Stream<Task> getPreviousTasks(LocalDateTime before, int limit) {
+        return prioritizedTasks.startingBefore(before, limit);
+    }
+
+    @Override
+    public Optional<LocalDateTime> findFreeSlot(LocalDateTime after, Duration duration) {
+        return prioritizedTasks.findFreeSlot(after, duration, null, null);
+    }
+
+    @Override
+    public Optional<LocalDateTime> findFreeSlot(LocalDateTime after, Duration duration,
+                                                LocalTime workdayStart, LocalTime workdayEnd) {
+        return prioritizedTasks.findFreeSlot(after, duration, workdayStart, workdayEnd);
+    }
+
+    // Согласованное состояние доски на момент вызова, без блокировок
+    public BoardSnapshot snapshot() {
+        return board.get();
+    }
+
+    // Размеры ConcurrentSkipListMap считаются обходом, поэтому эти значения не для горячего пути
+    @Override
+    public int getTaskCount() {
+        return tasks.size();
+    }
+
+    @Override
+    public int getSubtaskCount() {
+        return subtasks.size();
+    }
+
+    @Override
+    public int getEpicCount() {
+        return epics.size();
+    }
+
+    @Override
+    public int getPrioritizedCount() {
+        return prioritizedTasks.size();
+    }
+
+    @Override
+    public int getHistorySize() {
+        return historyManager.size();
+    }
+
+    // Пакетные операции берут блокировки всех эпиков по возрастанию номера, затем scheduleLock:
+    // общий порядок захвата сохраняется, а пакет видит и меняет доску целиком.
+    private <T> T underAllLocks(int stripe, Supplier<T> action) {
+        if (stripe == epicLocks.length) {
+            scheduleLock.lock();
+            try {
+                return action.get();
+            } finally {
+                scheduleLock.unlock();
+            }
+        }
+        synchronized (epicLocks[stripe]) {
+            return underAllLocks(stripe + 1, action);
+        }
+    }
+
+    // Копии готовятся заранее, внутри updateAndGet остается только сборка новой версии:
+    // при повторе CAS из-за конкурентной записи в другой эпик копирование не повторяется
+    private void publish(Collection<? extends Task> changed, Collection<? extends Task> removed) {
+        List<Task> frozen = new ArrayList<>(changed.size());
+        for (Task task : changed) {
+            frozen.add(BoardSnapshot.freeze(task));
+        }
+        board.updateAndGet(current -> current.with(frozen, removed));
+    }
+
+    @Override
+    public TaskSubscription subscribe(Consumer<List<TaskEvent>> listener, int capacity, int maxBatch) {
+        return events.subscribe(listener, capacity, maxBatch);
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Лимит не может быть отрицательным.");
+        }
+    }
+
+    private Object epicLock(int epicId) {
+        return epicLocks[stripe(epicId)];
+    }
+
+    private static int stripe(int epicId) {
+        return Math.floorMod(epicId, EPIC_LOCK_STRIPES);
+    }
+
+    private Epic copyOf(Epic epic) {
+        synchronized (epicLock(epic.getId())) {
+            return epic.copy();
+        }
+    }
+
+    private Task readable(Task task) {
+        return task instanceof Epic ? copyOf((Epic) task) : task;
+    }
+
+    private List<Task> readable(List<Task> found) {
+        List<Task> result = new ArrayList<>(found.size());
+        for (Task task : found) {
+            result.add(readable(task));
+        }
+        return result;
+    }
+
+    private void unschedule(Task task) {
+        scheduleLock.lock();
+        try {
+            prioritizedTasks.remove(task);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+}
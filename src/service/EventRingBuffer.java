@@ -0,0 +1,119 @@
+package service;
+
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Кольцевой буфер событий одного подписчика. Писатель никогда не ждет читателя:
+// если буфер заполнен, событие отбрасывается и учитывается в счетчике потерь.
+// Потеря не остается молчаливой: вслед за событиями, принятыми до нее, подписчик получает
+// маркер OVERFLOW с числом потерянных событий. Пока маркер не встал в очередь, новые события тоже
+// отбрасываются, иначе они пришли бы раньше него. Маркер ставит писатель, если для него и события
+// есть место, или читатель, когда выбрал все принятое до потери.
+// Читатель забирает события пачками, под блокировкой - только копирование ссылок.
+// Номер событию присваивается здесь же при добавлении, отброшенное событие тоже занимает номер.
+final class EventRingBuffer {
+    private final TaskEvent[] events;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private int head;
+    private int size;
+    private long dropped;
+    private long sequence;
+    // Потерянные события, маркер которых еще не поставлен в очередь
+    private long lost;
+    private boolean closed;
+
+    EventRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Емкость буфера должна быть положительной.");
+        }
+        events = new TaskEvent[capacity];
+    }
+
+    boolean offer(TaskEvent event) {
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            sequence++;
+            if (lost > 0 && size <= events.length - 2) {
+                enqueue(TaskEvent.overflow(sequence - 1, lost));
+                lost = 0;
+            }
+            if (lost > 0 || size == events.length) {
+                lost++;
+                dropped++;
+                return false;
+            }
+            enqueue(event.withSequence(sequence));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Ждет хотя бы одно событие и переносит в batch не больше maxBatch. Возвращает false, если буфер закрыт.
+    boolean drainTo(List<TaskEvent> batch, int maxBatch) throws InterruptedException {
+        lock.lock();
+        try {
+            while (size == 0 && lost == 0 && !closed) {
+                notEmpty.await();
+            }
+            if (closed) {
+                return false;
+            }
+            int count = Math.min(size, maxBatch);
+            for (int i = 0; i < count; i++) {
+                batch.add(events[head]);
+                events[head] = null;
+                head = (head + 1) % events.length;
+            }
+            size -= count;
+            if (size == 0 && lost > 0 && count < maxBatch) {
+                batch.add(TaskEvent.overflow(sequence, lost));
+                lost = 0;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(TaskEvent event) {
+        events[(head + size) % events.length] = event;
+        size++;
+        if (size == 1) {
+            notEmpty.signal();
+        }
+    }
+
+    long getDropped() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
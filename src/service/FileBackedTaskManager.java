@@ -5,194 +5,1110 @@ import exseption.ManagerSaveException;
 import model.Epic;
 import model.Subtask;
 import model.Task;
+import utils.CompactionPolicy;
+import utils.Durability;
+import utils.SnapshotFormat;
 import utils.Status;
+import utils.TypeTask;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import static utils.TypeTask.*;
 
-public class FileBackedTaskManager extends InMemoryTaskManager {
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
+    private static final String HEADER = "id,type,name,status,description,epic,duration,startTime";
+    private static final String PUT = "PUT";
+    private static final String DELETE = "DELETE";
+    private static final String DELETE_ALL = "DELETE_ALL";
+    private static final String ALL = "ALL";
+    private static final long DEFAULT_PARALLEL_LOAD_THRESHOLD = 8L * 1024 * 1024;
+    private static final int DEFAULT_PARALLEL_CHUNK_SIZE = 16 * 1024;
+    private static final int SEGMENT_SIZE = 1024;
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d+)\\.csv");
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
     private final Path filePath;
+    private final Path journalPath;
+    private final Path oldJournalPath;
+    private final Path segmentsPath;
+    private final SnapshotFormat snapshotFormat;
+    private final Durability durability;
+    private final long parallelLoadThreshold;
+    private final int parallelChunkSize;
+    private final BackgroundFlusher flusher;
+    private final Thread shutdownHook;
+    private final Object flushLock = new Object();
+    private StringBuilder pendingJournal = new StringBuilder();
+    private boolean dirty;
+    // Только для SEGMENTED: сегменты, измененные после последней записи, и сегменты, у которых есть файл
+    private final BitSet dirtySegments = new BitSet();
+    private final BitSet storedSegments = new BitSet();
+    private FileChannel journalChannel;
+    private volatile SaveListener saveListener;
+    // Компактизация и checkpoint не выполняются одновременно; порядок блокировок: compactionLock, flushLock, this
+    private final Object compactionLock = new Object();
+    private final AtomicLong journalBytes = new AtomicLong();
+    private final AtomicLong journalOperations = new AtomicLong();
+    private volatile long lastCompactionNanos = System.nanoTime();
+    private volatile JournalCompactor compactor;
 
     public FileBackedTaskManager(Path filePath) {
+        this(filePath, false);
+    }
+
+    public FileBackedTaskManager(Path filePath, boolean journaled) {
+        this(filePath, journaled, Durability.NONE, 0, 0);
+    }
+
+    public FileBackedTaskManager(Path filePath, boolean journaled, Durability durability,
+                                 long flushIntervalMillis, int maxPendingOperations) {
+        this(filePath, journaled, SnapshotFormat.CSV, durability, flushIntervalMillis, maxPendingOperations);
+    }
+
+    public FileBackedTaskManager(Path filePath, boolean journaled, SnapshotFormat snapshotFormat,
+                                 Durability durability, long flushIntervalMillis, int maxPendingOperations) {
+        this(filePath, journaled, snapshotFormat, durability, flushIntervalMillis, maxPendingOperations,
+                DEFAULT_PARALLEL_LOAD_THRESHOLD, DEFAULT_PARALLEL_CHUNK_SIZE);
+    }
+
+    // Для тестов: параллельная загрузка CSV с заданным порогом размера файла и размером пакета строк
+    FileBackedTaskManager(Path filePath, long parallelLoadThreshold, int parallelChunkSize) {
+        this(filePath, false, SnapshotFormat.CSV, Durability.NONE, 0, 0, parallelLoadThreshold, parallelChunkSize);
+    }
+
+    private FileBackedTaskManager(Path filePath, boolean journaled, SnapshotFormat snapshotFormat,
+                                  Durability durability, long flushIntervalMillis, int maxPendingOperations,
+                                  long parallelLoadThreshold, int parallelChunkSize) {
         this.filePath = filePath;
+        this.journalPath = journaled ? filePath.resolveSibling(filePath.getFileName() + ".journal") : null;
+        this.oldJournalPath = journaled ? filePath.resolveSibling(filePath.getFileName() + ".journal.old") : null;
+        this.segmentsPath = snapshotFormat == SnapshotFormat.SEGMENTED
+                ? filePath.resolveSibling(filePath.getFileName() + ".segments") : null;
+        this.snapshotFormat = snapshotFormat;
+        this.durability = durability;
+        this.parallelLoadThreshold = parallelLoadThreshold;
+        this.parallelChunkSize = parallelChunkSize;
         loadFromFile();
+        if (journaled) {
+            replayJournal();
+        }
+        if (durability != Durability.OPERATION && flushIntervalMillis > 0) {
+            flusher = new BackgroundFlusher("task-manager-flusher", this::writePending,
+                    flushIntervalMillis, maxPendingOperations);
+            shutdownHook = new Thread(flusher::close, "task-manager-shutdown");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        } else {
+            flusher = null;
+            shutdownHook = null;
+        }
     }
 
     @Override
     public Task createTask(Task task) {
-        Task createdTask = super.createTask(task);
-        save();
+        Task createdTask;
+        synchronized (this) {
+            createdTask = super.createTask(task);
+            recordPut(createdTask);
+        }
+        persistChanges();
         return createdTask;
     }
 
     @Override
     public Subtask createSubtask(Subtask subtask) {
-        Subtask createdSubtask = super.createSubtask(subtask);
-        save();
+        Subtask createdSubtask;
+        synchronized (this) {
+            createdSubtask = super.createSubtask(subtask);
+            recordPut(createdSubtask);
+        }
+        persistChanges();
         return createdSubtask;
     }
 
     @Override
     public Epic createEpic(Epic epic) {
-        Epic createdEpic = super.createEpic(epic);
-        save();
+        Epic createdEpic;
+        synchronized (this) {
+            createdEpic = super.createEpic(epic);
+            recordPut(createdEpic);
+        }
+        persistChanges();
         return createdEpic;
     }
 
+    // Пакет пишется в журнал целиком и сохраняется одной записью
+    @Override
+    public List<Task> createAll(Collection<? extends Task> newTasks) {
+        List<Task> created;
+        synchronized (this) {
+            created = super.createAll(newTasks);
+            for (Task task : created) {
+                recordPut(task);
+            }
+        }
+        persistChanges();
+        return created;
+    }
+
+    // При воспроизведении журнала задачи пакета сначала удаляются, а затем добавляются заново:
+    // поочередное обновление могло бы наткнуться на еще не освобожденный слот другой задачи пакета.
+    @Override
+    public void updateAll(Collection<? extends Task> updatedTasks) {
+        synchronized (this) {
+            super.updateAll(updatedTasks);
+            for (Task task : updatedTasks) {
+                if (!(task instanceof Epic)) {
+                    recordDelete(StatusIndex.typeOf(task), task.getId());
+                }
+            }
+            for (Task task : updatedTasks) {
+                recordPut(task instanceof Epic ? findById(task.getId()) : task);
+            }
+        }
+        persistChanges();
+    }
+
+    @Override
+    public List<Task> deleteWhere(Predicate<? super Task> filter) {
+        List<Task> removed;
+        synchronized (this) {
+            removed = super.deleteWhere(filter);
+            for (Task task : removed) {
+                recordDelete(StatusIndex.typeOf(task), task.getId());
+            }
+        }
+        persistChanges();
+        return removed;
+    }
+
     @Override
     public void updateTask(Task task) {
-        super.updateTask(task);
-        save();
+        synchronized (this) {
+            super.updateTask(task);
+            recordPut(task);
+        }
+        persistChanges();
     }
 
     @Override
     public void updateSubtask(Subtask subtask) {
-        super.updateSubtask(subtask);
-        save();
+        synchronized (this) {
+            super.updateSubtask(subtask);
+            recordPut(subtask);
+        }
+        persistChanges();
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        super.updateEpic(epic);
-        save();
+        synchronized (this) {
+            super.updateEpic(epic);
+            recordPut(epic);
+        }
+        persistChanges();
     }
 
     @Override
     public void deleteTask(int id) {
-        super.deleteTask(id);
-        save();
+        synchronized (this) {
+            super.deleteTask(id);
+            recordDelete(TASK, id);
+        }
+        persistChanges();
     }
 
     @Override
     public void deleteSubtask(int id) {
-        super.deleteSubtask(id);
-        save();
+        synchronized (this) {
+            super.deleteSubtask(id);
+            recordDelete(SUBTASK, id);
+        }
+        persistChanges();
     }
 
     @Override
     public void deleteEpic(int id) {
-        super.deleteEpic(id);
-        save();
+        synchronized (this) {
+            markEpicSubtasks(id);
+            super.deleteEpic(id);
+            recordDelete(EPIC, id);
+        }
+        persistChanges();
     }
 
     @Override
     public void deleteAllTasks() {
-        super.deleteAllTasks();
-        save();
+        synchronized (this) {
+            super.deleteAllTasks();
+            recordDeleteAll(TASK.name());
+        }
+        persistChanges();
     }
 
     @Override
     public void deleteAllSubtasks() {
-        super.deleteAllSubtasks();
-        save();
+        synchronized (this) {
+            super.deleteAllSubtasks();
+            recordDeleteAll(SUBTASK.name());
+        }
+        persistChanges();
     }
 
     @Override
     public void deleteAllEpics() {
-        super.deleteAllEpics();
-        save();
+        synchronized (this) {
+            super.deleteAllEpics();
+            recordDeleteAll(EPIC.name());
+        }
+        persistChanges();
     }
 
-    private void save() {
+    @Override
+    public void deleteAll() {
+        synchronized (this) {
+            super.deleteAll();
+            recordDeleteAll(ALL);
+        }
+        persistChanges();
+    }
+
+    public static FileBackedTaskManager loadFromFile(Path file) {
+        return new FileBackedTaskManager(file);
+    }
+
+    // Оставлен для совместимости: счетчик id выставляется при загрузке за тот же проход по файлу.
+    // Счетчик только увеличивается, чтобы id из журнала не выдавались повторно.
+    @Deprecated
+    public void maxIdCount() throws IOException {
+        if (!Files.exists(filePath) || segmentsPath != null) {
+            return;
+        }
+        int maxId = 0;
+        if (BinarySnapshot.isBinary(filePath)) {
+            maxId = BinarySnapshot.read(filePath, task -> {
+            });
+        } else {
+            try (BufferedReader reader = Files.newBufferedReader(filePath, StandardCharsets.UTF_8)) {
+                reader.readLine();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        maxId = Math.max(maxId, Integer.parseInt(line.substring(0, line.indexOf(','))));
+                    }
+                }
+            }
+        }
+        synchronized (this) {
+            setIdCounter(Math.max(getIdCounter(), maxId + 1));
+        }
+    }
+
+    public boolean isJournaled() {
+        return journalPath != null;
+    }
+
+    public SnapshotFormat getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public void setSaveListener(SaveListener saveListener) {
+        this.saveListener = saveListener;
+    }
+
+    public void flush() {
+        if (flusher != null) {
+            flusher.flush();
+        }
+    }
+
+    // Ошибка фоновой записи, которую поток еще не смог исправить повтором; null - все записано
+    public RuntimeException getFlushFailure() {
+        return flusher != null ? flusher.getFailure() : null;
+    }
+
+    // Последняя ошибка фоновой компактизации; null, если последняя попытка удалась или компактизация не запущена
+    public RuntimeException getCompactionFailure() {
+        JournalCompactor currentCompactor = compactor;
+        return currentCompactor != null ? currentCompactor.getLastFailure() : null;
+    }
+
+    public void checkpoint() {
+        synchronized (compactionLock) {
+            synchronized (flushLock) {
+                writePending();
+                synchronized (this) {
+                    dirty = true;
+                }
+                save();
+                if (journalPath != null) {
+                    try {
+                        closeJournalChannel();
+                        Files.deleteIfExists(journalPath);
+                        Files.deleteIfExists(oldJournalPath);
+                    } catch (IOException e) {
+                        throw new ManagerSaveException("Ошибка при очистке журнала: " + journalPath, e);
+                    }
+                    journalBytes.set(0);
+                    journalOperations.set(0);
+                    lastCompactionNanos = System.nanoTime();
+                }
+            }
+        }
+    }
+
+    // Фоновая компактизация журнала по условиям policy; останавливается в close()
+    public void startCompaction(CompactionPolicy policy) {
+        if (journalPath == null) {
+            throw new IllegalStateException("Компактизация доступна только для менеджера с журналом.");
+        }
+        synchronized (compactionLock) {
+            if (compactor != null) {
+                throw new IllegalStateException("Компактизация уже запущена.");
+            }
+            IoThrottle throttle = new IoThrottle(policy.getMaxWriteBytesPerSecond());
+            compactor = new JournalCompactor("task-manager-compactor",
+                    () -> isCompactionDue(policy), () -> compact(throttle));
+        }
+    }
+
+    public void compact() {
+        if (journalPath == null) {
+            throw new IllegalStateException("Компактизация доступна только для менеджера с журналом.");
+        }
+        compact(IoThrottle.UNLIMITED);
+    }
+
+    // Компактизация в три шага:
+    // 1) под блокировками забираются накопленные записи и снимается образ состояния (копии задач или
+    //    содержимое измененных сегментов), а журнал дописывается и переименовывается в .journal.old.
+    //    Новые операции с этого момента идут в новый журнал, запись снимка их уже не ждет;
+    // 2) без блокировок образ пишется во временный файл с ограничением скорости и атомарно заменяет снимок;
+    // 3) .journal.old удаляется. При сбое до этого шага при загрузке воспроизводятся оба журнала,
+    //    а повторное применение записей поверх более нового снимка дает то же состояние.
+    private void compact(IoThrottle throttle) {
+        synchronized (compactionLock) {
+            long start = System.nanoTime();
+            SnapshotImage image;
+            synchronized (flushLock) {
+                StringBuilder records;
+                synchronized (this) {
+                    records = pendingJournal;
+                    pendingJournal = new StringBuilder();
+                    image = captureImage();
+                    journalOperations.set(0);
+                }
+                if (records.length() > 0) {
+                    appendToJournal(records);
+                }
+                try {
+                    rotateJournal();
+                } catch (IOException e) {
+                    throw new ManagerSaveException("Ошибка при переключении журнала: " + journalPath, e);
+                }
+            }
+            lastCompactionNanos = System.nanoTime();
+            JournalCompactor currentCompactor = compactor;
+            long bytes = currentCompactor != null
+                    ? currentCompactor.interruptibly(() -> image.write(throttle)) : image.write(throttle);
+            try {
+                Files.deleteIfExists(oldJournalPath);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при удалении старого журнала: " + oldJournalPath, e);
+            }
+            SaveListener listener = saveListener;
+            if (listener != null) {
+                listener.onSave(bytes, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private boolean isCompactionDue(CompactionPolicy policy) {
+        long operations = journalOperations.get();
+        long bytes = journalBytes.get();
+        if (operations == 0 && bytes == 0) {
+            return false;
+        }
+        return policy.getMaxJournalBytes() > 0 && bytes >= policy.getMaxJournalBytes()
+                || policy.getMaxJournalOperations() > 0 && operations >= policy.getMaxJournalOperations()
+                || policy.getMaxIntervalMillis() > 0
+                && System.nanoTime() - lastCompactionNanos >= policy.getMaxIntervalMillis() * 1_000_000;
+    }
+
+    private SnapshotImage captureImage() {
+        if (segmentsPath != null) {
+            Map<Integer, String> contents = captureSegments();
+            return throttle -> writeSegments(contents, throttle);
+        }
+        dirty = false;
+        List<Task> board = captureBoard();
+        return throttle -> {
+            try {
+                return writeSnapshot(board, ".compact.tmp", throttle);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при сохранении данных", e);
+            }
+        };
+    }
+
+    // Вызывается под this. Задачи и подзадачи менеджер не меняет на месте (обновление кладет новый объект),
+    // поэтому в образ попадают ссылки; эпики копируются, так как их агрегаты меняются вместе с подзадачами.
+    // Порядок - задачи, эпики, подзадачи: при загрузке эпик должен появиться раньше своих подзадач.
+    private List<Task> captureBoard() {
+        List<Task> board = new ArrayList<>(getAllTasks());
+        for (Epic epic : getAllEpics()) {
+            board.add(epic.copyWithoutSubtasks());
+        }
+        board.addAll(getAllSubtasks());
+        return board;
+    }
+
+    // Вызывается под flushLock, когда все записи уже в журнале. Если .journal.old остался от прерванной
+    // компактизации, он еще нужен: текущий журнал дописывается к нему, а не заменяет его.
+    private void rotateJournal() throws IOException {
+        closeJournalChannel();
+        if (!Files.exists(journalPath)) {
+            return;
+        }
+        if (Files.exists(oldJournalPath)) {
+            try (FileChannel source = FileChannel.open(journalPath, StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(oldJournalPath, StandardOpenOption.WRITE,
+                         StandardOpenOption.APPEND)) {
+                long position = 0;
+                long size = source.size();
+                while (position < size) {
+                    position += source.transferTo(position, size - position, target);
+                }
+                if (durability != Durability.NONE) {
+                    target.force(false);
+                }
+            }
+            Files.delete(journalPath);
+        } else {
+            Files.move(journalPath, oldJournalPath, StandardCopyOption.ATOMIC_MOVE);
+        }
+        journalBytes.set(0);
+    }
+
+    @Override
+    public void close() {
+        JournalCompactor currentCompactor = compactor;
+        if (currentCompactor != null) {
+            currentCompactor.close();
+        }
+        if (flusher != null) {
+            flusher.close();
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException ignored) {
+                // JVM уже завершается, хук выполнит последнюю запись сам
+            }
+        }
+        synchronized (flushLock) {
+            try {
+                closeJournalChannel();
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при закрытии журнала: " + journalPath, e);
+            }
+        }
+    }
+
+    private void recordPut(Task task) {
+        markSegment(task.getId());
+        if (journalPath == null) {
+            dirty = true;
+        } else {
+            pendingJournal.append(PUT).append(',').append(toString(task)).append('\n');
+            journalOperations.incrementAndGet();
+        }
+    }
+
+    private void recordDelete(TypeTask type, int id) {
+        markSegment(id);
+        if (journalPath == null) {
+            dirty = true;
+        } else {
+            pendingJournal.append(DELETE).append(',').append(type).append(',').append(id).append('\n');
+            journalOperations.incrementAndGet();
+        }
+    }
+
+    private void recordDeleteAll(String type) {
+        markAllSegments();
+        if (journalPath == null) {
+            dirty = true;
+        } else {
+            pendingJournal.append(DELETE_ALL).append(',').append(type).append('\n');
+            journalOperations.incrementAndGet();
+        }
+    }
+
+    private void persistChanges() {
+        if (flusher == null) {
+            writePending();
+        } else {
+            flusher.operationAdded();
+        }
+    }
+
+    private void writePending() {
+        synchronized (flushLock) {
+            if (journalPath == null) {
+                save();
+                return;
+            }
+            StringBuilder records;
+            synchronized (this) {
+                records = pendingJournal;
+                pendingJournal = new StringBuilder();
+            }
+            if (records.length() > 0) {
+                appendToJournal(records);
+            }
+        }
+    }
+
+    private void appendToJournal(StringBuilder records) {
         try {
-            StringBuilder sb = new StringBuilder();
-            sb.append("id,type,name,status,description,epic\n");
-            for (Task task : getAllTasks()) {
-                sb.append(toString(task)).append("\n");
+            if (journalChannel == null) {
+                journalChannel = FileChannel.open(journalPath, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
             }
-            for (Epic epic : getAllEpics()) {
-                sb.append(toString(epic)).append("\n");
+            ByteBuffer buffer = ByteBuffer.wrap(records.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                journalChannel.write(buffer);
             }
-            for (Subtask subtask : getAllSubtasks()) {
-                sb.append(toString(subtask)).append("\n");
+            if (durability != Durability.NONE) {
+                journalChannel.force(false);
             }
-            Files.writeString(filePath, sb.toString(), StandardCharsets.UTF_8);
+            journalBytes.addAndGet(buffer.capacity());
         } catch (IOException e) {
+            synchronized (this) {
+                pendingJournal.insert(0, records);
+            }
+            throw new ManagerSaveException("Ошибка при записи в журнал: " + journalPath, e);
+        }
+    }
+
+    private void closeJournalChannel() throws IOException {
+        if (journalChannel != null) {
+            journalChannel.close();
+            journalChannel = null;
+        }
+    }
+
+    // Эпик хранится только с названием и описанием: статус и время пересчитываются из подзадач
+    // при загрузке, поэтому изменение подзадачи не требует переписывать сегмент ее эпика
+    private void markSegment(int id) {
+        if (segmentsPath != null) {
+            dirtySegments.set(id / SEGMENT_SIZE);
+        }
+    }
+
+    private void markAllSegments() {
+        if (segmentsPath != null) {
+            dirtySegments.or(storedSegments);
+        }
+    }
+
+    // Подзадачи удаляются вместе с эпиком, а их id нужно знать до удаления
+    private void markEpicSubtasks(int epicId) {
+        if (segmentsPath == null) {
+            return;
+        }
+        Task epic = findById(epicId);
+        if (epic instanceof Epic) {
+            for (Subtask subtask : ((Epic) epic).getSubtaskView()) {
+                markSegment(subtask.getId());
+            }
+        }
+    }
+
+    private void save() {
+        if (segmentsPath != null) {
+            saveSegments();
+            return;
+        }
+        long start = System.nanoTime();
+        List<Task> board;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            board = captureBoard();
+        }
+        long bytes;
+        try {
+            bytes = writeSnapshot(board, ".tmp", IoThrottle.UNLIMITED);
+        } catch (IOException e) {
+            synchronized (this) {
+                dirty = true;
+            }
             throw new ManagerSaveException("Ошибка при сохранении данных", e);
         }
+        SaveListener listener = saveListener;
+        if (listener != null) {
+            listener.onSave(bytes, System.nanoTime() - start);
+        }
+    }
+
+    // Записываются только измененные сегменты, каждый через временный файл и атомарное переименование.
+    // Объем записи пропорционален числу затронутых сегментов, а не размеру доски.
+    // Опустевший сегмент удаляется. Если запись прервалась, оставшиеся сегменты снова помечаются измененными.
+    private void saveSegments() {
+        long start = System.nanoTime();
+        Map<Integer, String> contents;
+        synchronized (this) {
+            if (dirtySegments.isEmpty()) {
+                return;
+            }
+            contents = captureSegments();
+        }
+        long bytes = writeSegments(contents, IoThrottle.UNLIMITED);
+        SaveListener listener = saveListener;
+        if (listener != null) {
+            listener.onSave(bytes, System.nanoTime() - start);
+        }
+    }
+
+    // Вызывается под this. storedSegments обновляется здесь же, а не после записи файла:
+    // иначе deleteAll* между снятием и записью нового сегмента не пометил бы его, и удаленные задачи
+    // вернулись бы из файла при загрузке
+    private Map<Integer, String> captureSegments() {
+        Map<Integer, String> contents = new LinkedHashMap<>();
+        for (int segment = dirtySegments.nextSetBit(0); segment >= 0; segment = dirtySegments.nextSetBit(segment + 1)) {
+            String content = segmentCsv(segment);
+            contents.put(segment, content);
+            storedSegments.set(segment, content != null);
+        }
+        dirtySegments.clear();
+        return contents;
+    }
+
+    private long writeSegments(Map<Integer, String> contents, IoThrottle throttle) {
+        long bytes = 0;
+        List<Integer> segments = new ArrayList<>(contents.keySet());
+        int written = 0;
+        try {
+            Files.createDirectories(segmentsPath);
+            for (; written < segments.size(); written++) {
+                int segment = segments.get(written);
+                bytes += writeSegment(segment, contents.get(segment), throttle);
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                for (int segment : segments.subList(written, segments.size())) {
+                    dirtySegments.set(segment);
+                }
+            }
+            throw new ManagerSaveException("Ошибка при сохранении сегментов: " + segmentsPath, e);
+        }
+        return bytes;
+    }
+
+    private long writeSegment(int segment, String content, IoThrottle throttle) throws IOException {
+        Path segmentFile = segmentsPath.resolve("segment-" + segment + ".csv");
+        if (content == null) {
+            Files.deleteIfExists(segmentFile);
+            return 0;
+        }
+        Path tempFile = segmentsPath.resolve("segment-" + segment + ".csv.tmp");
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            WritableByteChannel target = throttle.wrap(channel);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            if (durability != Durability.NONE) {
+                channel.force(true);
+            }
+        }
+        Files.move(tempFile, segmentFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return bytes.length;
+    }
+
+    // Записи сегмента собираются поиском по его диапазону id: остальная доска не просматривается.
+    // Эпики пишутся перед подзадачами, чтобы при загрузке подзадача находила свой эпик; null - сегмент пуст
+    private String segmentCsv(int segment) {
+        int firstId = segment * SEGMENT_SIZE;
+        StringBuilder tasksCsv = new StringBuilder();
+        StringBuilder epicsCsv = new StringBuilder();
+        StringBuilder subtasksCsv = new StringBuilder();
+        for (int id = Math.max(firstId, 1); id < firstId + SEGMENT_SIZE; id++) {
+            Task task = findById(id);
+            if (task != null) {
+                StringBuilder target = task instanceof Epic ? epicsCsv
+                        : task instanceof Subtask ? subtasksCsv : tasksCsv;
+                target.append(toString(task)).append('\n');
+            }
+        }
+        if (tasksCsv.length() + epicsCsv.length() + subtasksCsv.length() == 0) {
+            return null;
+        }
+        return HEADER + "\n" + tasksCsv + epicsCsv + subtasksCsv;
+    }
+
+    // Образ из captureBoard() пишется без блокировок менеджера: запись и force не задерживают операции.
+    // У save() и компактизации свои временные файлы, так как компактизация идет без flushLock.
+    private long writeSnapshot(List<Task> board, String tempSuffix, IoThrottle throttle) throws IOException {
+        Path tempFile = filePath.resolveSibling(filePath.getFileName() + tempSuffix);
+        long bytes;
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            WritableByteChannel target = throttle.wrap(channel);
+            if (snapshotFormat == SnapshotFormat.BINARY) {
+                BinarySnapshot.Writer writer = BinarySnapshot.writer(target);
+                for (Task task : board) {
+                    writer.write(task);
+                }
+                writer.finish();
+            } else {
+                Writer out = new BufferedWriter(Channels.newWriter(target, StandardCharsets.UTF_8),
+                        WRITE_BUFFER_SIZE);
+                out.write(HEADER);
+                out.write('\n');
+                for (Task task : board) {
+                    out.write(toString(task));
+                    out.write('\n');
+                }
+                out.flush();
+            }
+            if (durability != Durability.NONE) {
+                channel.force(true);
+            }
+            bytes = channel.position();
+        }
+        Files.move(tempFile, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return bytes;
     }
 
     private String toString(Task task) {
+        String duration = task.getDuration() != null ? String.valueOf(task.getDuration().toMinutes()) : "";
+        String startTime = task.getStartTime() != null ? task.getStartTime().toString() : "";
         if (task instanceof Subtask) {
             Subtask subtask = (Subtask) task;
-            return String.format("%d,SUBTASK,%s,%s,%s,%d",
-                    subtask.getId(), subtask.getName(), subtask.getStatus(), subtask.getDescription(),
-                    subtask.getEpicId(), subtask.getDuration().toMinutes(), subtask.getStartTime());
+            return String.format("%d,SUBTASK,%s,%s,%s,%d,%s,%s",
+                    subtask.getId(), escape(subtask.getName()), subtask.getStatus(), escape(subtask.getDescription()),
+                    subtask.getEpicId(), duration, startTime);
         } else if (task instanceof Epic) {
             Epic epic = (Epic) task;
-            return String.format("%d,EPIC,%s,%s,%s,",
-                    epic.getId(), epic.getName(), epic.getStatus(), epic.getDescription(),
-                    epic.getDuration().toMinutes(), epic.getStartTime());
+            return String.format("%d,EPIC,%s,%s,%s,,%s,%s",
+                    epic.getId(), escape(epic.getName()), epic.getStatus(), escape(epic.getDescription()),
+                    duration, startTime);
         } else {
-            return String.format("%d,TASK,%s,%s,%s,",
-                    task.getId(), task.getName(), task.getStatus(), task.getDescription(),
-                    task.getDuration().toMinutes(), task.getStartTime());
+            return String.format("%d,TASK,%s,%s,%s,,%s,%s",
+                    task.getId(), escape(task.getName()), task.getStatus(), escape(task.getDescription()),
+                    duration, startTime);
+        }
+    }
+
+    // Запятые и переводы строк в названии и описании заменяются на \c, \n и \r (обратная косая черта - \\),
+    // поэтому строка снимка или журнала по-прежнему разбивается по запятым и читается построчно
+    private static String escape(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = switch (c) {
+                case '\\' -> "\\\\";
+                case ',' -> "\\c";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                default -> null;
+            };
+            if (replacement != null && sb == null) {
+                sb = new StringBuilder(value.length() + 8).append(value, 0, i);
+            }
+            if (sb != null) {
+                if (replacement != null) {
+                    sb.append(replacement);
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb != null ? sb.toString() : value;
+    }
+
+    private static String unescape(String value) {
+        int next = value.indexOf('\\');
+        if (next < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length()).append(value, 0, next);
+        for (int i = next; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\' || i + 1 == value.length()) {
+                sb.append(c);
+                continue;
+            }
+            char escaped = value.charAt(++i);
+            switch (escaped) {
+                case 'c' -> sb.append(',');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                default -> sb.append(escaped);
+            }
         }
+        return sb.toString();
     }
 
     private void loadFromFile() {
         try {
-            List<String> lines = Files.readAllLines(filePath, StandardCharsets.UTF_8);
-            if (lines.size() > 1) {
-                for (String line : lines.subList(1, lines.size())) {
-                    fromString(line);
-                }
-                maxIdCount();
+            if (segmentsPath != null) {
+                loadSegments();
+                return;
+            }
+            if (journalPath != null && !Files.exists(filePath)) {
+                return;
             }
+            if (BinarySnapshot.isBinary(filePath)) {
+                int maxId = BinarySnapshot.read(filePath, this::addExisting);
+                setIdCounter(maxId + 1);
+                return;
+            }
+            loadCsv();
         } catch (IOException e) {
             throw new ManagerLoadExseption("Ошибка загрузки данных из файла: " + filePath, e);
         }
     }
 
-    public static FileBackedTaskManager loadFromFile(Path file) {
-        return new FileBackedTaskManager(file);
+    private void loadCsv() throws IOException {
+        boolean parallel = Files.size(filePath) >= parallelLoadThreshold;
+        List<String> chunk = new ArrayList<>();
+        int maxId = 0;
+        try (BufferedReader reader = Files.newBufferedReader(filePath, StandardCharsets.UTF_8)) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (!parallel) {
+                    Task task = fromString(line.split(",", -1), 0);
+                    maxId = Math.max(maxId, task.getId());
+                    addExisting(task);
+                    continue;
+                }
+                chunk.add(line);
+                if (chunk.size() == parallelChunkSize) {
+                    maxId = Math.max(maxId, loadChunk(chunk));
+                    chunk.clear();
+                }
+            }
+        }
+        maxId = Math.max(maxId, loadChunk(chunk));
+        setIdCounter(maxId + 1);
     }
 
-    private void fromString(String value) {
-        String[] parts = value.split(",");
-        int id = Integer.parseInt(parts[0]);
-        String type = parts[1];
-        String name = parts[2];
-        Status status = Status.valueOf(parts[3]);
-        String description = parts[4];
-        long duration = Long.parseLong(parts[5]);
-        LocalDateTime startTime = LocalDateTime.parse(parts[6]);
-        if (type.equals(TASK.name())) {
-            Task task = new Task(name, description, status, Duration.ofMinutes(duration), startTime);
-            task.setId(id);
-            addExistingTask(task);
-        } else if (type.equals(EPIC.name())) {
-            Epic epic = new Epic(name, description);
-            epic.setId(id);
-            epic.setDuration(Duration.ofMinutes(duration));
-            epic.setStartTime(startTime);
-            addExistingEpic(epic);
-        } else if (type.equals(SUBTASK.name())) {
-            int epicId = Integer.parseInt(parts[5]);
-            Subtask subtask = new Subtask(name, description, epicId, status, Duration.ofMinutes(duration), startTime);
-            subtask.setId(id);
-            addExistingSubtask(subtask);
+    // Подзадачи добавляются после всех эпиков: после переноса в другой эпик подзадача может
+    // оказаться в сегменте раньше своего эпика. Оставшиеся от прерванной записи .tmp файлы пропускаются.
+    private void loadSegments() throws IOException {
+        if (!Files.isDirectory(segmentsPath)) {
+            return;
+        }
+        List<Path> segmentFiles;
+        try (Stream<Path> files = Files.list(segmentsPath)) {
+            segmentFiles = files.filter(file -> SEGMENT_FILE.matcher(file.getFileName().toString()).matches())
+                    .toList();
+        }
+        List<Subtask> subtasks = new ArrayList<>();
+        int maxId = 0;
+        for (Path segmentFile : segmentFiles) {
+            Matcher matcher = SEGMENT_FILE.matcher(segmentFile.getFileName().toString());
+            matcher.matches();
+            storedSegments.set(Integer.parseInt(matcher.group(1)));
+            try (BufferedReader reader = Files.newBufferedReader(segmentFile, StandardCharsets.UTF_8)) {
+                reader.readLine();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    Task task = fromString(line.split(",", -1), 0);
+                    maxId = Math.max(maxId, task.getId());
+                    if (task instanceof Subtask) {
+                        subtasks.add((Subtask) task);
+                    } else {
+                        addExisting(task);
+                    }
+                }
+            }
         }
+        for (Subtask subtask : subtasks) {
+            addExisting(subtask);
+        }
+        setIdCounter(maxId + 1);
     }
 
-    public void maxIdCount() throws IOException {
-        List<String> lines = Files.readAllLines(filePath, StandardCharsets.UTF_8);
+    // Строки разбираются параллельно, а добавляются по порядку файла: эпики идут раньше своих подзадач
+    private int loadChunk(List<String> lines) {
         int maxId = 0;
+        List<Task> parsed = lines.parallelStream()
+                .map(line -> fromString(line.split(",", -1), 0))
+                .toList();
+        for (Task task : parsed) {
+            maxId = Math.max(maxId, task.getId());
+            addExisting(task);
+        }
+        return maxId;
+    }
+
+    // Журнал прерванной компактизации (.journal.old) старше текущего и воспроизводится первым
+    private void replayJournal() {
+        replayJournal(oldJournalPath);
+        replayJournal(journalPath);
+    }
 
-        for (String line : lines.subList(1, lines.size())) {
-            String[] parts = line.split(",");
-            int id = Integer.parseInt(parts[0]);
-            if (id > maxId) {
-                maxId = id;
+    private void replayJournal(Path journal) {
+        if (!Files.exists(journal)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            int maxId = getIdCounter() - 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    String[] parts = line.split(",", -1);
+                    replay(parts);
+                    journalOperations.incrementAndGet();
+                    if (parts[0].equals(PUT)) {
+                        maxId = Math.max(maxId, Integer.parseInt(parts[1]));
+                    }
+                }
             }
+            setIdCounter(maxId + 1);
+            journalBytes.addAndGet(Files.size(journal));
+        } catch (IOException e) {
+            throw new ManagerLoadExseption("Ошибка загрузки журнала: " + journal, e);
         }
-        setIdCounter(maxId + 1);
+    }
+
+    private void replay(String[] parts) {
+        switch (parts[0]) {
+            // Запись кладется как есть, без проверки пересечений: журнал после прерванной компактизации
+            // может воспроизводиться поверх снимка, в который он уже вошел, и повтор должен давать то же состояние.
+            // Подзадача без эпика пропускается: такой эпик удален дальше по журналу вместе с ней.
+            case PUT -> {
+                Task task = fromString(parts, 1);
+                markSegment(task.getId());
+                if (task instanceof Epic) {
+                    if (containsId(task.getId())) {
+                        super.updateEpic((Epic) task);
+                    } else {
+                        addExisting(task);
+                    }
+                } else if (task instanceof Subtask) {
+                    if (containsId(task.getId())) {
+                        super.deleteSubtask(task.getId());
+                    }
+                    if (findById(((Subtask) task).getEpicId()) instanceof Epic) {
+                        addExisting(task);
+                    }
+                } else {
+                    if (containsId(task.getId())) {
+                        super.deleteTask(task.getId());
+                    }
+                    addExisting(task);
+                }
+            }
+            case DELETE -> {
+                int id = Integer.parseInt(parts[2]);
+                markSegment(id);
+                switch (TypeTask.valueOf(parts[1])) {
+                    case TASK -> super.deleteTask(id);
+                    case SUBTASK -> super.deleteSubtask(id);
+                    case EPIC -> {
+                        markEpicSubtasks(id);
+                        super.deleteEpic(id);
+                    }
+                }
+            }
+            case DELETE_ALL -> {
+                markAllSegments();
+                switch (parts[1]) {
+                    case "TASK" -> super.deleteAllTasks();
+                    case "SUBTASK" -> super.deleteAllSubtasks();
+                    case "EPIC" -> super.deleteAllEpics();
+                    case ALL -> super.deleteAll();
+                }
+            }
+            default -> throw new ManagerLoadExseption("Неизвестная запись журнала: " + String.join(",", parts), null);
+        }
+    }
+
+    private void addExisting(Task task) {
+        if (task instanceof Subtask) {
+            addExistingSubtask((Subtask) task);
+        } else if (task instanceof Epic) {
+            addExistingEpic((Epic) task);
+        } else {
+            addExistingTask(task);
+        }
+    }
+
+    private Task fromString(String[] parts, int offset) {
+        int id = Integer.parseInt(parts[offset]);
+        String type = parts[offset + 1];
+        String name = unescape(parts[offset + 2]);
+        Status status = Status.valueOf(parts[offset + 3]);
+        String description = unescape(parts[offset + 4]);
+        Duration duration = parts.length > offset + 6 && !parts[offset + 6].isEmpty()
+                ? Duration.ofMinutes(Long.parseLong(parts[offset + 6])) : Duration.ZERO;
+        LocalDateTime startTime = parts.length > offset + 7 && !parts[offset + 7].isEmpty()
+                ? LocalDateTime.parse(parts[offset + 7]) : null;
+        Task task;
+        if (type.equals(EPIC.name())) {
+            task = new Epic(name, description);
+        } else if (type.equals(SUBTASK.name())) {
+            int epicId = Integer.parseInt(parts[offset + 5]);
+            task = new Subtask(name, description, epicId, status, duration, startTime);
+        } else {
+            task = new Task(name, description, status, duration, startTime);
+        }
+        task.setId(id);
+        return task;
+    }
+
+    // Вызывается после каждой записи снимка на диск: размер файла и время сохранения
+    public interface SaveListener {
+        void onSave(long bytes, long durationNanos);
+    }
+
+    private interface SnapshotImage {
+        long write(IoThrottle throttle);
     }
 }
@@ -10,4 +10,14 @@ public interface HistoryManager {
     void remove(int id);
 
     List<Task> getHistory();
+
+    default List<Task> getHistory(int offset, int limit) {
+        List<Task> history = getHistory();
+        int from = Math.min(offset, history.size());
+        return history.subList(from, (int) Math.min(history.size(), (long) from + limit));
+    }
+
+    default int size() {
+        return getHistory().size();
+    }
 }
@@ -0,0 +1,47 @@
+package service;
+
+import java.util.Collection;
+import java.util.Map;
+
+// Таблица задач одного типа по id: общий вид для IntObjectMap и конкурентных карт,
+// через который пакетные операции работают с хранилищем любого менеджера.
+interface IdTable<V> {
+    V get(int id);
+
+    V put(int id, V value);
+
+    V remove(int id);
+
+    boolean containsKey(int id);
+
+    Collection<V> values();
+
+    static <V> IdTable<V> of(Map<Integer, V> map) {
+        return new IdTable<>() {
+            @Override
+            public V get(int id) {
+                return map.get(id);
+            }
+
+            @Override
+            public V put(int id, V value) {
+                return map.put(id, value);
+            }
+
+            @Override
+            public V remove(int id) {
+                return map.remove(id);
+            }
+
+            @Override
+            public boolean containsKey(int id) {
+                return map.containsKey(id);
+            }
+
+            @Override
+            public Collection<V> values() {
+                return map.values();
+            }
+        };
+    }
+}
@@ -3,21 +3,51 @@ package service;
 import model.Task;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.function.IntFunction;
 
 public class InMemoryHistoryManager implements HistoryManager {
-    private final HashMap<Integer, Node> taskNodeMap = new HashMap<>();
+    // Оценка занимаемой памяти: узел списка, ячейка массива в IntObjectMap и сам объект Task
+    // (его размер - Task.ESTIMATED_BYTES, общий с описанием полей задачи)
+    private static final long NODE_BYTES = 40;
+    private static final long MAP_ENTRY_BYTES = 8;
+    private static final long STRING_BYTES = 40;
+
+    private final IntObjectMap<Node> taskNodeMap = new IntObjectMap<>();
+    private final int maxEntries;
+    private final long maxBytes;
+    private final IntFunction<Task> taskResolver;
+    private long usedBytes;
     private Node head;
     private Node tail;
 
+    public InMemoryHistoryManager() {
+        this(Integer.MAX_VALUE, Long.MAX_VALUE, null);
+    }
+
+    public InMemoryHistoryManager(int maxEntries) {
+        this(maxEntries, Long.MAX_VALUE, null);
+    }
+
+    // Если передан taskResolver, история хранит только id и получает задачи через него при чтении,
+    // поэтому удаленные задачи не удерживаются в памяти, а размер узла не зависит от задачи.
+    public InMemoryHistoryManager(int maxEntries, long maxBytes, IntFunction<Task> taskResolver) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Емкость истории должна быть положительной.");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.taskResolver = taskResolver;
+    }
+
     @Override
     public void add(Task task) {
         if (task == null) {
             return;
         }
         remove(task.getId());
-        Node newNode = new Node(task);
+        Node newNode = new Node(task.getId(), taskResolver == null ? task : null);
+        newNode.estimatedBytes = estimateBytes(newNode);
 
         if (tail == null) {
             head = tail = newNode;
@@ -27,6 +57,8 @@ public class InMemoryHistoryManager implements HistoryManager {
             tail = newNode;
         }
         taskNodeMap.put(task.getId(), newNode);
+        usedBytes += newNode.estimatedBytes;
+        evictOverflow();
     }
 
     @Override
@@ -45,6 +77,7 @@ public class InMemoryHistoryManager implements HistoryManager {
             if (nodeToRemove == tail) {
                 tail = nodeToRemove.prev;
             }
+            usedBytes -= nodeToRemove.estimatedBytes;
         }
     }
 
@@ -53,9 +86,55 @@ public class InMemoryHistoryManager implements HistoryManager {
         List<Task> history = new ArrayList<>();
         Node current = head;
         while (current != null) {
-            history.add(current.task);
+            Task task = taskResolver == null ? current.task : taskResolver.apply(current.id);
+            if (task != null) {
+                history.add(task);
+            }
             current = current.next;
         }
         return history;
     }
+
+    // Пропускает offset узлов с начала списка, остальная история не копируется
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        List<Task> page = new ArrayList<>();
+        Node current = head;
+        int skipped = 0;
+        while (current != null && page.size() < limit) {
+            Task task = taskResolver == null ? current.task : taskResolver.apply(current.id);
+            if (task != null && skipped++ >= offset) {
+                page.add(task);
+            }
+            current = current.next;
+        }
+        return page;
+    }
+
+    @Override
+    public int size() {
+        return taskNodeMap.size();
+    }
+
+    public long getEstimatedBytes() {
+        return usedBytes;
+    }
+
+    private void evictOverflow() {
+        while (head != null && (taskNodeMap.size() > maxEntries || usedBytes > maxBytes)) {
+            remove(head.id);
+        }
+    }
+
+    private static long estimateBytes(Node node) {
+        long bytes = NODE_BYTES + MAP_ENTRY_BYTES;
+        if (node.task != null) {
+            bytes += Task.ESTIMATED_BYTES + estimateBytes(node.task.getName()) + estimateBytes(node.task.getDescription());
+        }
+        return bytes;
+    }
+
+    private static long estimateBytes(String value) {
+        return value == null ? 0 : STRING_BYTES + value.length();
+    }
 }
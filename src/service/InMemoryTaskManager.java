@@ -5,19 +5,43 @@ import model.Subtask;
 import model.Task;
 import utils.Managers;
 import utils.Status;
+import utils.TypeTask;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
-public class InMemoryTaskManager implements TaskManager {
+public class InMemoryTaskManager implements TaskManager, TaskManagerGauges {
 
     private int idCounter = 1;
 
-    private final Map<Integer, Task> tasks = new HashMap<>();
-    private final Map<Integer, Subtask> subtasks = new HashMap<>();
-    private final Map<Integer, Epic> epics = new HashMap<>();
-    private final HistoryManager historyManager = Managers.getDefaultHistory();
-    private final Set<Task> prioritizedTasks = new TreeSet<>(Comparator.comparing(Task::getStartTime));
+    private final IntObjectMap<Task> tasks = new IntObjectMap<>();
+    private final IntObjectMap<Subtask> subtasks = new IntObjectMap<>();
+    private final IntObjectMap<Epic> epics = new IntObjectMap<>();
+    private final HistoryManager historyManager;
+    private final ScheduleIndex prioritizedTasks = new ScheduleIndex();
+    private final StatusIndex statusIndex = new StatusIndex();
+    private final TaskEventBus events = new TaskEventBus();
+    private final BoardBatch batch;
+
+    public InMemoryTaskManager() {
+        this(Managers.getDefaultHistory());
+    }
+
+    public InMemoryTaskManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+        this.batch = newBatch();
+    }
+
+    public InMemoryTaskManager(int historyMaxEntries, long historyMaxBytes, boolean historyStoresIds) {
+        this.historyManager = new InMemoryHistoryManager(historyMaxEntries, historyMaxBytes,
+                historyStoresIds ? this::findById : null);
+        this.batch = newBatch();
+    }
 
     @Override
     public Task createTask(Task task) {
@@ -26,9 +50,9 @@ public class InMemoryTaskManager implements TaskManager {
         }
         task.setId(idCounter++);
         tasks.put(task.getId(), task);
-        if (task.getStartTime() != null) {
-            prioritizedTasks.add(task);
-        }
+        prioritizedTasks.add(task);
+        statusIndex.put(task);
+        events.created(task);
         return task;
     }
 
@@ -42,11 +66,15 @@ public class InMemoryTaskManager implements TaskManager {
         }
         subtask.setId(idCounter++);
         subtasks.put(subtask.getId(), subtask);
-        epics.get(subtask.getEpicId()).addSubtask(subtask);
-
-        if (subtask.getStartTime() != null) {
-            prioritizedTasks.add(subtask);
-        }
+        Epic epic = epics.get(subtask.getEpicId());
+        Task epicBefore = events.image(epic);
+        epic.addSubtask(subtask);
+        statusIndex.put(subtask);
+        statusIndex.put(epic);
+
+        prioritizedTasks.add(subtask);
+        events.created(subtask);
+        events.epicRecalculated(epicBefore, epic);
         return subtask;
     }
 
@@ -54,6 +82,8 @@ public class InMemoryTaskManager implements TaskManager {
     public Epic createEpic(Epic epic) {
         epic.setId(idCounter++);
         epics.put(epic.getId(), epic);
+        statusIndex.put(epic);
+        events.created(epic);
 
         return epic;
     }
@@ -103,7 +133,68 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public List<Subtask> getSubtaskByEpic(int epicId) {
         Epic epic = epics.get(epicId);
-        return epic != null ? new ArrayList<>(epic.getSubtasks()) : new ArrayList<>();
+        return epic != null ? new ArrayList<>(epic.getSubtaskView()) : new ArrayList<>();
+    }
+
+    @Override
+    public List<Task> getByStatus(Status status) {
+        return statusIndex.get(status);
+    }
+
+    @Override
+    public List<Task> getByType(TypeTask type) {
+        switch (type) {
+            case SUBTASK:
+                return List.<Task>copyOf(subtasks.values());
+            case EPIC:
+                return List.<Task>copyOf(epics.values());
+            default:
+                return List.copyOf(tasks.values());
+        }
+    }
+
+    @Override
+    public List<Task> getByTypeAndStatus(TypeTask type, Status status) {
+        return statusIndex.get(type, status);
+    }
+
+    // Потоки читают внутренние структуры без копирования и должны потребляться до следующего изменения доски
+    @Override
+    public Stream<Task> stream(TypeTask type) {
+        switch (type) {
+            case SUBTASK:
+                return subtasks.stream().map(Task.class::cast);
+            case EPIC:
+                return epics.stream().map(Task.class::cast);
+            default:
+                return tasks.stream();
+        }
+    }
+
+    // Постраничная выборка по id: следующая страница запрашивается с id последней задачи предыдущей
+    @Override
+    public List<Task> getPage(TypeTask type, int afterId, int limit) {
+        checkLimit(limit);
+        switch (type) {
+            case SUBTASK:
+                return List.<Task>copyOf(subtasks.page(afterId, limit));
+            case EPIC:
+                return List.<Task>copyOf(epics.page(afterId, limit));
+            default:
+                return List.copyOf(tasks.page(afterId, limit));
+        }
+    }
+
+    @Override
+    public boolean contains(TypeTask type, int id) {
+        switch (type) {
+            case SUBTASK:
+                return subtasks.containsKey(id);
+            case EPIC:
+                return epics.containsKey(id);
+            default:
+                return tasks.containsKey(id);
+        }
     }
 
     @Override
@@ -118,10 +209,10 @@ public class InMemoryTaskManager implements TaskManager {
         prioritizedTasks.remove(existingTask);
 
         tasks.put(task.getId(), task);
+        statusIndex.put(task);
 
-        if (task.getStartTime() != null) {
-            prioritizedTasks.add(task);
-        }
+        prioritizedTasks.add(task);
+        events.updated(events.image(existingTask), task);
     }
 
     @Override
@@ -137,15 +228,17 @@ public class InMemoryTaskManager implements TaskManager {
         prioritizedTasks.remove(existingSubtask);
 
         Epic epic = epics.get(subtask.getEpicId());
+        Task epicBefore = events.image(epic);
         if (epic != null) {
-            epic.removeSubtask(existingSubtask);
-            epic.addSubtask(subtask);
+            epic.replaceSubtask(existingSubtask, subtask);
+            statusIndex.put(epic);
         }
         subtasks.put(subtask.getId(), subtask);
+        statusIndex.put(subtask);
 
-        if (subtask.getStartTime() != null) {
-            prioritizedTasks.add(subtask);
-        }
+        prioritizedTasks.add(subtask);
+        events.updated(events.image(existingSubtask), subtask);
+        events.epicRecalculated(epicBefore, epic);
     }
 
     @Override
@@ -154,9 +247,11 @@ public class InMemoryTaskManager implements TaskManager {
             throw new IllegalArgumentException("model.Epic с ID " + epic.getId() + " не существует.");
         }
         Epic existingEpic = epics.get(epic.getId());
+        Task before = events.image(existingEpic);
 
         existingEpic.setName(epic.getName());
         existingEpic.setDescription(epic.getDescription());
+        events.updated(before, existingEpic);
     }
 
     @Override
@@ -165,6 +260,8 @@ public class InMemoryTaskManager implements TaskManager {
         if (task != null) {
             historyManager.remove(task.getId());
             prioritizedTasks.remove(task);
+            statusIndex.remove(task);
+            events.deleted(task);
         }
     }
 
@@ -173,11 +270,16 @@ public class InMemoryTaskManager implements TaskManager {
         Subtask subtask = subtasks.remove(id);
         if (subtask != null) {
             Epic epic = epics.get(subtask.getEpicId());
+            Task epicBefore = events.image(epic);
             if (epic != null) {
-                epic.removeSubtask(subtask);
+                epic.removeSubtask(subtask.getId());
+                statusIndex.put(epic);
             }
             historyManager.remove(subtask.getId());
             prioritizedTasks.remove(subtask);
+            statusIndex.remove(subtask);
+            events.deleted(subtask);
+            events.epicRecalculated(epicBefore, epic);
         }
     }
 
@@ -185,12 +287,16 @@ public class InMemoryTaskManager implements TaskManager {
     public void deleteEpic(int id) {
         Epic epic = epics.remove(id);
         if (epic != null) {
-            for (Subtask subtask : epic.getSubtasks()) {
+            for (Subtask subtask : epic.getSubtaskView()) {
                 subtasks.remove(subtask.getId());
                 historyManager.remove(subtask.getId());
                 prioritizedTasks.remove(subtask);
+                statusIndex.remove(subtask);
+                events.deleted(subtask);
             }
             historyManager.remove(epic.getId());
+            statusIndex.remove(epic);
+            events.deleted(epic);
 
         }
     }
@@ -200,43 +306,80 @@ public class InMemoryTaskManager implements TaskManager {
         for (Task task : tasks.values()) {
             historyManager.remove(task.getId());
             prioritizedTasks.remove(task);
+            events.deleted(task);
         }
         tasks.clear();
+        statusIndex.clear(TypeTask.TASK);
     }
 
     @Override
     public void deleteAllSubtasks() {
         for (Epic epic : epics.values()) {
-            for (Subtask subtask : epic.getSubtasks()) {
+            Task epicBefore = epic.getSubtaskCount() > 0 ? events.image(epic) : null;
+            for (Subtask subtask : epic.getSubtaskView()) {
                 historyManager.remove(subtask.getId());
                 prioritizedTasks.remove(subtask);
+                events.deleted(subtask);
             }
             epic.clearSubtasks();
-            updateEpicStatus(epic.getId());
+            statusIndex.put(epic);
+            events.epicRecalculated(epicBefore, epic);
         }
         subtasks.clear();
+        statusIndex.clear(TypeTask.SUBTASK);
 
     }
 
     @Override
     public void deleteAllEpics() {
         for (Epic epic : epics.values()) {
-            for (Subtask subtask : epic.getSubtasks()) {
+            for (Subtask subtask : epic.getSubtaskView()) {
                 subtasks.remove(subtask.getId());
                 historyManager.remove(subtask.getId());
                 prioritizedTasks.remove(subtask);
+                events.deleted(subtask);
             }
             historyManager.remove(epic.getId());
+            events.deleted(epic);
         }
         epics.clear();
+        statusIndex.clear(TypeTask.EPIC);
+        statusIndex.clear(TypeTask.SUBTASK);
     }
 
     @Override
     public void deleteAll() {
+        if (events.isActive()) {
+            for (Task task : tasks.values()) {
+                events.deleted(task);
+            }
+            for (Subtask subtask : subtasks.values()) {
+                events.deleted(subtask);
+            }
+            for (Epic epic : epics.values()) {
+                events.deleted(epic);
+            }
+        }
         tasks.clear();
         subtasks.clear();
         epics.clear();
         prioritizedTasks.clear();
+        statusIndex.clear();
+    }
+
+    @Override
+    public List<Task> createAll(Collection<? extends Task> newTasks) {
+        return batch.createAll(newTasks, null);
+    }
+
+    @Override
+    public void updateAll(Collection<? extends Task> updatedTasks) {
+        batch.updateAll(updatedTasks, null);
+    }
+
+    @Override
+    public List<Task> deleteWhere(Predicate<? super Task> filter) {
+        return batch.deleteWhere(filter, null);
     }
 
     @Override
@@ -244,16 +387,70 @@ public class InMemoryTaskManager implements TaskManager {
         return historyManager.getHistory();
     }
 
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Смещение не может быть отрицательным.");
+        }
+        checkLimit(limit);
+        return historyManager.getHistory(offset, limit);
+    }
+
+    @Override
+    public TaskSubscription subscribe(Consumer<List<TaskEvent>> listener, int capacity, int maxBatch) {
+        return events.subscribe(listener, capacity, maxBatch);
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Лимит не может быть отрицательным.");
+        }
+    }
+
     protected void addExistingTask(Task task) {
         tasks.put(task.getId(), task);
+        prioritizedTasks.add(task);
+        statusIndex.put(task);
     }
 
     protected void addExistingSubtask(Subtask subtask) {
         subtasks.put(subtask.getId(), subtask);
+        Epic epic = epics.get(subtask.getEpicId());
+        if (epic != null) {
+            epic.addSubtask(subtask);
+            statusIndex.put(epic);
+        }
+        prioritizedTasks.add(subtask);
+        statusIndex.put(subtask);
     }
 
     protected void addExistingEpic(Epic epic) {
         epics.put(epic.getId(), epic);
+        statusIndex.put(epic);
+    }
+
+    private BoardBatch newBatch() {
+        return new BoardBatch(tasks, subtasks, epics, prioritizedTasks, statusIndex, historyManager, events,
+                () -> idCounter++);
+    }
+
+    protected final Task findById(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = subtasks.get(id);
+        }
+        if (task == null) {
+            task = epics.get(id);
+        }
+        return task;
+    }
+
+    protected boolean containsId(int id) {
+        return tasks.containsKey(id) || subtasks.containsKey(id) || epics.containsKey(id);
+    }
+
+    protected int getIdCounter() {
+        return idCounter;
     }
 
     public void setIdCounter(int idCounter) {
@@ -262,42 +459,67 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public List<Task> getPrioritizedTasks() {
-        return new ArrayList<>(prioritizedTasks);
+        return prioritizedTasks.toList();
     }
 
-    public boolean checkForTimeIntersection(Task newTask) {
-        if (newTask.getStartTime() == null || newTask.getEndTime() == null) {
-            return false;
-        }
-        return prioritizedTasks.stream().anyMatch(existingTask -> {
-            if (existingTask.getId() == newTask.getId()) {
-                return false;
-            }
-            if (existingTask.getStartTime() == null || newTask.getStartTime() == null) {
-                return false;
-            }
-            LocalDateTime existingEndTime = existingTask.getEndTime();
-            LocalDateTime newEndTime = newTask.getEndTime();
-            return existingTask.getStartTime().isBefore(newEndTime) && newTask.getStartTime().isBefore(existingEndTime);
-        });
+    @Override
+    public Stream<Task> streamPrioritizedTasks() {
+        return prioritizedTasks.stream();
     }
 
-    private void updateEpicStatus(int epicId) {
-        Epic epic = epics.get(epicId);
-        if (epic == null) return;
-        List<Subtask> epicSubtasks = epic.getSubtasks();
-        if (epicSubtasks.isEmpty()) {
-            epic.setStatus(Status.NEW);
-            return;
-        }
-        boolean allDone = epicSubtasks.stream().allMatch(subtask -> subtask.getStatus() == Status.DONE);
-        boolean anyInProgress = epicSubtasks.stream().anyMatch(subtask -> subtask.getStatus() == Status.IN_PROGRESS);
-        if (allDone) {
-            epic.setStatus(Status.DONE);
-        } else if (anyInProgress) {
-            epic.setStatus(Status.IN_PROGRESS);
-        } else {
-            epic.setStatus(Status.NEW);
-        }
+    // Представление без копирования; содержимое меняется вместе с расписанием
+    @Override
+    public Collection<Task> getTasksBetween(LocalDateTime from, LocalDateTime to) {
+        return prioritizedTasks.between(from, to);
+    }
+
+    @Override
+    public Stream<Task> getNextTasks(LocalDateTime after, int limit) {
+        return prioritizedTasks.startingAfter(after, limit);
+    }
+
+    @Override
+    public Stream<Task> getPreviousTasks(LocalDateTime before, int limit) {
+        return prioritizedTasks.startingBefore(before, limit);
+    }
+
+    @Override
+    public Optional<LocalDateTime> findFreeSlot(LocalDateTime after, Duration duration) {
+        return prioritizedTasks.findFreeSlot(after, duration, null, null);
+    }
+
+    @Override
+    public Optional<LocalDateTime> findFreeSlot(LocalDateTime after, Duration duration,
+                                                LocalTime workdayStart, LocalTime workdayEnd) {
+        return prioritizedTasks.findFreeSlot(after, duration, workdayStart, workdayEnd);
+    }
+
+    @Override
+    public int getTaskCount() {
+        return tasks.size();
+    }
+
+    @Override
+    public int getSubtaskCount() {
+        return subtasks.size();
+    }
+
+    @Override
+    public int getEpicCount() {
+        return epics.size();
+    }
+
+    @Override
+    public int getPrioritizedCount() {
+        return prioritizedTasks.size();
+    }
+
+    @Override
+    public int getHistorySize() {
+        return historyManager.size();
+    }
+
+    public boolean checkForTimeIntersection(Task newTask) {
+        return prioritizedTasks.hasIntersection(newTask);
     }
 }
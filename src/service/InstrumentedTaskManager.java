@@ -0,0 +1,468 @@
+package service;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import utils.Status;
+import utils.TypeTask;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Декоратор, который считает вызовы, ошибки и задержки каждого метода TaskManager.
+// Счетчики - LongAdder и гистограмма без блокировок, поэтому обертку можно не снимать в работе.
+// Размеры структур читаются только при запросе метрик. Однопоточный менеджер нельзя читать из потока
+// выгрузки, поэтому для него размеры снимает поток-владелец при следующем вызове после запроса.
+public class InstrumentedTaskManager implements TaskManager, AutoCloseable {
+    private final TaskManager delegate;
+    private final OperationStats[] stats = new OperationStats[Operation.values().length];
+    private final LatencyHistogram saveDurations = new LatencyHistogram();
+    private final LongAdder savedBytes = new LongAdder();
+    private volatile long lastSaveBytes;
+    private final boolean gaugesThreadSafe;
+    private volatile boolean gaugesRequested;
+    private volatile Map<String, Long> ownerGauges = Map.of();
+    private ScheduledExecutorService dumpExecutor;
+
+    public InstrumentedTaskManager(TaskManager delegate) {
+        this.delegate = delegate;
+        this.gaugesThreadSafe = isThreadSafe(delegate);
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = new OperationStats();
+        }
+        if (delegate instanceof FileBackedTaskManager) {
+            ((FileBackedTaskManager) delegate).setSaveListener(this::recordSave);
+        }
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        return timed(Operation.CREATE_TASK, () -> delegate.createTask(task));
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        return timed(Operation.CREATE_SUBTASK, () -> delegate.createSubtask(subtask));
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        return timed(Operation.CREATE_EPIC, () -> delegate.createEpic(epic));
+    }
+
+    @Override
+    public List<Task> createAll(Collection<? extends Task> tasks) {
+        return timed(Operation.CREATE_ALL, () -> delegate.createAll(tasks));
+    }
+
+    @Override
+    public void updateAll(Collection<? extends Task> tasks) {
+        timed(Operation.UPDATE_ALL, () -> delegate.updateAll(tasks));
+    }
+
+    @Override
+    public List<Task> deleteWhere(Predicate<? super Task> filter) {
+        return timed(Operation.DELETE_WHERE, () -> delegate.deleteWhere(filter));
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return timed(Operation.GET_ALL_TASKS, () -> delegate.getAllTasks());
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return timed(Operation.GET_ALL_SUBTASKS, () -> delegate.getAllSubtasks());
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return timed(Operation.GET_ALL_EPICS, () -> delegate.getAllEpics());
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        return timed(Operation.GET_TASK_BY_ID, () -> delegate.getTaskById(id));
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return timed(Operation.GET_SUBTASK_BY_ID, () -> delegate.getSubtaskById(id));
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return timed(Operation.GET_EPIC_BY_ID, () -> delegate.getEpicById(id));
+    }
+
+    @Override
+    public List<Subtask> getSubtaskByEpic(int epicId) {
+        return timed(Operation.GET_SUBTASK_BY_EPIC, () -> delegate.getSubtaskByEpic(epicId));
+    }
+
+    @Override
+    public List<Task> getByStatus(Status status) {
+        return timed(Operation.GET_BY_STATUS, () -> delegate.getByStatus(status));
+    }
+
+    @Override
+    public List<Task> getByType(TypeTask type) {
+        return timed(Operation.GET_BY_TYPE, () -> delegate.getByType(type));
+    }
+
+    @Override
+    public List<Task> getByTypeAndStatus(TypeTask type, Status status) {
+        return timed(Operation.GET_BY_TYPE_AND_STATUS, () -> delegate.getByTypeAndStatus(type, status));
+    }
+
+    @Override
+    public Stream<Task> stream(TypeTask type) {
+        return timed(Operation.STREAM, () -> delegate.stream(type));
+    }
+
+    @Override
+    public List<Task> getPage(TypeTask type, int afterId, int limit) {
+        return timed(Operation.GET_PAGE, () -> delegate.getPage(type, afterId, limit));
+    }
+
+    @Override
+    public boolean contains(TypeTask type, int id) {
+        return timed(Operation.CONTAINS, () -> delegate.contains(type, id));
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        timed(Operation.UPDATE_TASK, () -> delegate.updateTask(task));
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        timed(Operation.UPDATE_SUBTASK, () -> delegate.updateSubtask(subtask));
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        timed(Operation.UPDATE_EPIC, () -> delegate.updateEpic(epic));
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        timed(Operation.DELETE_TASK, () -> delegate.deleteTask(id));
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        timed(Operation.DELETE_SUBTASK, () -> delegate.deleteSubtask(id));
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        timed(Operation.DELETE_EPIC, () -> delegate.deleteEpic(id));
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        timed(Operation.DELETE_ALL_TASKS, () -> delegate.deleteAllTasks());
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        timed(Operation.DELETE_ALL_SUBTASKS, () -> delegate.deleteAllSubtasks());
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        timed(Operation.DELETE_ALL_EPICS, () -> delegate.deleteAllEpics());
+    }
+
+    @Override
+    public void deleteAll() {
+        timed(Operation.DELETE_ALL, () -> delegate.deleteAll());
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return timed(Operation.GET_HISTORY, () -> delegate.getHistory());
+    }
+
+    @Override
+    public List<Task> getHistory(int offset, int limit) {
+        return timed(Operation.GET_HISTORY_PAGE, () -> delegate.getHistory(offset, limit));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return timed(Operation.GET_PRIORITIZED_TASKS, () -> delegate.getPrioritizedTasks());
+    }
+
+    @Override
+    public Stream<Task> streamPrioritizedTasks() {
+        return timed(Operation.STREAM_PRIORITIZED_TASKS, () -> delegate.streamPrioritizedTasks());
+    }
+
+    @Override
+    public Collection<Task> getTasksBetween(LocalDateTime from, LocalDateTime to) {
+        return timed(Operation.GET_TASKS_BETWEEN, () -> delegate.getTasksBetween(from, to));
+    }
+
+    @Override
+    public Stream<Task> getNextTasks(LocalDateTime after, int limit) {
+        return timed(Operation.GET_NEXT_TASKS, () -> delegate.getNextTasks(after, limit));
+    }
+
+    @Override
+    public Stream<Task> getPreviousTasks(LocalDateTime before, int limit) {
+        return timed(Operation.GET_PREVIOUS_TASKS, () -> delegate.getPreviousTasks(before, limit));
+    }
+
+    @Override
+    public Optional<LocalDateTime> findFreeSlot(LocalDateTime after, Duration duration) {
+        return timed(Operation.FIND_FREE_SLOT, () -> delegate.findFreeSlot(after, duration));
+    }
+
+    @Override
+    public Optional<LocalDateTime> findFreeSlot(LocalDateTime after, Duration duration,
+                                                LocalTime workdayStart, LocalTime workdayEnd) {
+        return timed(Operation.FIND_FREE_SLOT_IN_WORKING_HOURS,
+                () -> delegate.findFreeSlot(after, duration, workdayStart, workdayEnd));
+    }
+
+    @Override
+    public TaskSubscription subscribe(Consumer<List<TaskEvent>> listener, int capacity, int maxBatch) {
+        return timed(Operation.SUBSCRIBE, () -> delegate.subscribe(listener, capacity, maxBatch));
+    }
+
+    private <T> T timed(Operation operation, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            stats[operation.ordinal()].errors.increment();
+            throw e;
+        } finally {
+            stats[operation.ordinal()].record(start);
+            if (gaugesRequested) {
+                captureOwnerGauges();
+            }
+        }
+    }
+
+    private void timed(Operation operation, Runnable call) {
+        timed(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    public TaskManager getDelegate() {
+        return delegate;
+    }
+
+    public OperationStats getStats(Operation operation) {
+        return stats[operation.ordinal()];
+    }
+
+    public LatencyHistogram getSaveDurations() {
+        return saveDurations;
+    }
+
+    public long getSavedBytes() {
+        return savedBytes.sum();
+    }
+
+    public long getLastSaveBytes() {
+        return lastSaveBytes;
+    }
+
+    // Текущие значения внутренних размеров; пусто, если менеджер их не предоставляет.
+    // Для однопоточного менеджера вызывать из того же потока, что и остальные методы.
+    public Map<String, Long> getGauges() {
+        Map<String, Long> gauges = new LinkedHashMap<>();
+        if (delegate instanceof TaskManagerGauges) {
+            TaskManagerGauges managerGauges = (TaskManagerGauges) delegate;
+            gauges.put("tasks", (long) managerGauges.getTaskCount());
+            gauges.put("subtasks", (long) managerGauges.getSubtaskCount());
+            gauges.put("epics", (long) managerGauges.getEpicCount());
+            gauges.put("prioritized", (long) managerGauges.getPrioritizedCount());
+            gauges.put("history", (long) managerGauges.getHistorySize());
+        }
+        if (delegate instanceof FileBackedTaskManager) {
+            gauges.put("saves", saveDurations.getCount());
+            gauges.put("savedBytes", savedBytes.sum());
+            gauges.put("lastSaveBytes", lastSaveBytes);
+        }
+        return gauges;
+    }
+
+    public String report() {
+        return report(getGauges());
+    }
+
+    private String report(Map<String, Long> gauges) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("operation,calls,errors,meanNanos,p50Nanos,p99Nanos,p999Nanos,maxNanos\n");
+        for (Operation operation : Operation.values()) {
+            OperationStats operationStats = stats[operation.ordinal()];
+            if (operationStats.getCalls() > 0) {
+                appendLatency(sb, operation.name(), operationStats.getCalls(), operationStats.getErrors(),
+                        operationStats.getLatency());
+            }
+        }
+        if (saveDurations.getCount() > 0) {
+            appendLatency(sb, "SAVE", saveDurations.getCount(), 0, saveDurations);
+        }
+        for (Map.Entry<String, Long> gauge : gauges.entrySet()) {
+            sb.append("gauge.").append(gauge.getKey()).append(',').append(gauge.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public synchronized void startPeriodicDump(Duration interval, Consumer<String> sink) {
+        if (interval.isZero() || interval.isNegative()) {
+            throw new IllegalArgumentException("Интервал выгрузки метрик должен быть положительным.");
+        }
+        stopPeriodicDump();
+        if (!gaugesThreadSafe) {
+            captureOwnerGauges();
+        }
+        dumpExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-manager-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        dumpExecutor.scheduleAtFixedRate(() -> sink.accept(report(dumpGauges())), millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopPeriodicDump() {
+        if (dumpExecutor != null) {
+            dumpExecutor.shutdownNow();
+            dumpExecutor = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        stopPeriodicDump();
+        if (delegate instanceof FileBackedTaskManager) {
+            ((FileBackedTaskManager) delegate).close();
+        }
+    }
+
+    // Поток выгрузки читает размеры сам только у потокобезопасного менеджера, иначе берет последние снятые
+    // владельцем значения и просит обновить их при следующем вызове
+    private Map<String, Long> dumpGauges() {
+        if (gaugesThreadSafe) {
+            return getGauges();
+        }
+        gaugesRequested = true;
+        return ownerGauges;
+    }
+
+    private void captureOwnerGauges() {
+        gaugesRequested = false;
+        ownerGauges = getGauges();
+    }
+
+    private static boolean isThreadSafe(TaskManager taskManager) {
+        if (taskManager instanceof InstrumentedTaskManager) {
+            return ((InstrumentedTaskManager) taskManager).gaugesThreadSafe;
+        }
+        return taskManager instanceof ConcurrentTaskManager;
+    }
+
+    private void recordSave(long bytes, long durationNanos) {
+        saveDurations.record(durationNanos);
+        savedBytes.add(bytes);
+        lastSaveBytes = bytes;
+    }
+
+    private static void appendLatency(StringBuilder sb, String name, long calls, long errors,
+                                      LatencyHistogram latency) {
+        sb.append(name).append(',')
+                .append(calls).append(',')
+                .append(errors).append(',')
+                .append(Math.round(latency.getMean())).append(',')
+                .append(latency.getValueAtPercentile(50)).append(',')
+                .append(latency.getValueAtPercentile(99)).append(',')
+                .append(latency.getValueAtPercentile(99.9)).append(',')
+                .append(latency.getMax()).append('\n');
+    }
+
+    public enum Operation {
+        CREATE_TASK,
+        CREATE_SUBTASK,
+        CREATE_EPIC,
+        CREATE_ALL,
+        UPDATE_ALL,
+        DELETE_WHERE,
+        GET_ALL_TASKS,
+        GET_ALL_SUBTASKS,
+        GET_ALL_EPICS,
+        GET_TASK_BY_ID,
+        GET_SUBTASK_BY_ID,
+        GET_EPIC_BY_ID,
+        GET_SUBTASK_BY_EPIC,
+        GET_BY_STATUS,
+        GET_BY_TYPE,
+        GET_BY_TYPE_AND_STATUS,
+        STREAM,
+        GET_PAGE,
+        CONTAINS,
+        UPDATE_TASK,
+        UPDATE_SUBTASK,
+        UPDATE_EPIC,
+        DELETE_TASK,
+        DELETE_SUBTASK,
+        DELETE_EPIC,
+        DELETE_ALL_TASKS,
+        DELETE_ALL_SUBTASKS,
+        DELETE_ALL_EPICS,
+        DELETE_ALL,
+        GET_HISTORY,
+        GET_HISTORY_PAGE,
+        GET_PRIORITIZED_TASKS,
+        STREAM_PRIORITIZED_TASKS,
+        GET_TASKS_BETWEEN,
+        GET_NEXT_TASKS,
+        GET_PREVIOUS_TASKS,
+        FIND_FREE_SLOT,
+        FIND_FREE_SLOT_IN_WORKING_HOURS,
+        SUBSCRIBE
+    }
+
+    public static final class OperationStats {
+        private final LongAdder errors = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private void record(long start) {
+            latency.record(System.nanoTime() - start);
+        }
+
+        public long getCalls() {
+            return latency.getCount();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+    }
+}
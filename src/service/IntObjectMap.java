@@ -0,0 +1,263 @@
+package service;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Отображение int -> объект для id, которые менеджер выдает подряд начиная с 1.
+// Такие ключи хранятся прямо в массиве по индексу, без Integer и узлов HashMap.
+// Ключи, далеко выходящие за заполненный диапазон (или отрицательные), уходят в TreeMap: таких ключей мало,
+// а обход везде идет по возрастанию ключа - отрицательные, плотная часть, затем большие положительные.
+// Итератор values() отказывает при изменении набора ключей во время обхода, как у HashMap.
+class IntObjectMap<V> implements IdTable<V> {
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_SPARSENESS = 8;
+
+    private Object[] values = new Object[MIN_CAPACITY];
+    private int denseSize;
+    private int modCount;
+    // Положительные ключи здесь всегда не меньше values.length: при росте массива они переносятся в него
+    private final TreeMap<Integer, V> overflow = new TreeMap<>();
+    private final Collection<V> valuesView = new ValuesView();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key >= 0 && key < values.length) {
+            return (V) values[key];
+        }
+        return overflow.isEmpty() ? null : overflow.get(key);
+    }
+
+    @Override
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Значение не может быть null.");
+        }
+        if (key >= 0 && (key < values.length || fitsDense(key))) {
+            if (key >= values.length) {
+                grow(key);
+            }
+            V previous = (V) values[key];
+            values[key] = value;
+            if (previous == null) {
+                denseSize++;
+                modCount++;
+            }
+            return previous;
+        }
+        V previous = overflow.put(key, value);
+        if (previous == null) {
+            modCount++;
+        }
+        return previous;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        if (key >= 0 && key < values.length) {
+            V previous = (V) values[key];
+            if (previous != null) {
+                values[key] = null;
+                denseSize--;
+                modCount++;
+            }
+            return previous;
+        }
+        V previous = overflow.isEmpty() ? null : overflow.remove(key);
+        if (previous != null) {
+            modCount++;
+        }
+        return previous;
+    }
+
+    int size() {
+        return denseSize + overflow.size();
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    void clear() {
+        values = new Object[MIN_CAPACITY];
+        denseSize = 0;
+        overflow.clear();
+        modCount++;
+    }
+
+    @Override
+    public Collection<V> values() {
+        return valuesView;
+    }
+
+    // Страница значений с ключами больше afterKey в порядке возрастания ключа.
+    // Плотная часть просматривается с позиции afterKey + 1, поэтому весь массив не обходится.
+    @SuppressWarnings("unchecked")
+    List<V> page(int afterKey, int limit) {
+        List<V> page = new ArrayList<>(Math.min(limit, size()));
+        if (afterKey < 0) {
+            addAll(page, overflow.subMap(afterKey, false, 0, false).values(), limit);
+        }
+        for (long key = Math.max((long) afterKey + 1, 0); key < values.length && page.size() < limit; key++) {
+            if (values[(int) key] != null) {
+                page.add((V) values[(int) key]);
+            }
+        }
+        addAll(page, overflow.tailMap(Math.max(afterKey, -1), false).values(), limit);
+        return page;
+    }
+
+    // Слабо согласованный поток: плотная часть читается из массива, актуального на момент вызова,
+    // и делится пополам по диапазону индексов, так что после parallel() поток обрабатывается параллельно.
+    Stream<V> stream() {
+        Stream<V> dense = StreamSupport.stream(new DenseSpliterator<>(values, 0, values.length), false);
+        if (overflow.isEmpty()) {
+            return dense;
+        }
+        List<V> negative = List.copyOf(overflow.headMap(0).values());
+        List<V> positive = List.copyOf(overflow.tailMap(0).values());
+        return Stream.concat(Stream.concat(negative.stream(), dense), positive.stream());
+    }
+
+    private static <V> void addAll(List<V> page, Collection<V> source, int limit) {
+        for (Iterator<V> iterator = source.iterator(); iterator.hasNext() && page.size() < limit; ) {
+            page.add(iterator.next());
+        }
+    }
+
+    private void grow(int key) {
+        values = Arrays.copyOf(values, Math.max(values.length * 2, key + 1));
+        if (!overflow.isEmpty()) {
+            overflow.entrySet().removeIf(entry -> {
+                int overflowKey = entry.getKey();
+                if (overflowKey >= 0 && overflowKey < values.length) {
+                    values[overflowKey] = entry.getValue();
+                    denseSize++;
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
+
+    private boolean fitsDense(int key) {
+        return key < Math.max(MIN_CAPACITY, (long) (size() + 1) * MAX_SPARSENESS);
+    }
+
+    private static final class DenseSpliterator<V> implements Spliterator<V> {
+        private static final int MIN_SPLIT = 1024;
+
+        private final Object[] array;
+        private int index;
+        private final int fence;
+
+        DenseSpliterator(Object[] array, int origin, int fence) {
+            this.array = array;
+            this.index = origin;
+            this.fence = fence;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super V> action) {
+            while (index < fence) {
+                Object value = array[index++];
+                if (value != null) {
+                    action.accept((V) value);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<V> trySplit() {
+            int middle = (index + fence) >>> 1;
+            if (middle - index < MIN_SPLIT) {
+                return null;
+            }
+            Spliterator<V> prefix = new DenseSpliterator<>(array, index, middle);
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.NONNULL;
+        }
+    }
+
+    private final class ValuesView extends AbstractCollection<V> {
+        @Override
+        public Iterator<V> iterator() {
+            return new ValuesIterator();
+        }
+
+        @Override
+        public int size() {
+            return IntObjectMap.this.size();
+        }
+    }
+
+    private final class ValuesIterator implements Iterator<V> {
+        private final int expectedModCount = modCount;
+        private final Iterator<V> negative = overflow.headMap(0).values().iterator();
+        private final Iterator<V> positive = overflow.tailMap(0).values().iterator();
+        private int index = advance(0);
+
+        private int advance(int from) {
+            while (from < values.length && values[from] == null) {
+                from++;
+            }
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return negative.hasNext() || index < values.length || positive.hasNext();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (negative.hasNext()) {
+                return negative.next();
+            }
+            if (index < values.length) {
+                V value = (V) values[index];
+                index = advance(index + 1);
+                return value;
+            }
+            if (!positive.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return positive.next();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+// Ограничение скорости записи: запись идет кусками, и перед каждым поток ждет,
+// пока средняя скорость не опустится до bytesPerSecond. Ноль - без ограничения.
+final class IoThrottle {
+    static final IoThrottle UNLIMITED = new IoThrottle(0);
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final long bytesPerSecond;
+    private long nextFreeNanos;
+
+    IoThrottle(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    WritableByteChannel wrap(WritableByteChannel channel) {
+        if (bytesPerSecond <= 0) {
+            return channel;
+        }
+        return new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                int chunk = Math.min(src.remaining(), CHUNK_SIZE);
+                acquire(chunk);
+                int limit = src.limit();
+                src.limit(src.position() + chunk);
+                try {
+                    return channel.write(src);
+                } finally {
+                    src.limit(limit);
+                }
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    private synchronized void acquire(int bytes) throws InterruptedIOException {
+        long now = System.nanoTime();
+        long start = Math.max(now, nextFreeNanos);
+        nextFreeNanos = start + bytes * 1_000_000_000L / bytesPerSecond;
+        long waitNanos = start - now;
+        if (waitNanos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Запись снимка прервана.");
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package service;
+
+import exseption.ManagerSaveException;
+
+import java.io.InterruptedIOException;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+// Фоновый поток компактизации: раз в CHECK_INTERVAL_MILLIS проверяет условия и при необходимости
+// запускает компактизацию. Поток с минимальным приоритетом, чтобы уступать обработке запросов.
+// Ошибка не останавливает поток: журнал остается на месте, попытка повторяется после паузы.
+// close() прерывает поток, только пока тот пишет образ (interruptibly): прерывание посреди работы
+// с журналом закрыло бы его канал, а прерванная запись образа оставляет лишь временный файл.
+class JournalCompactor {
+    private static final long CHECK_INTERVAL_MILLIS = 100;
+    private static final long FAILURE_BACKOFF_MILLIS = 1000;
+
+    private final BooleanSupplier due;
+    private final Runnable compaction;
+    private final Thread thread;
+    private final Object lock = new Object();
+    private boolean closed;
+    private boolean interruptible;
+    private volatile RuntimeException lastFailure;
+
+    JournalCompactor(String name, BooleanSupplier due, Runnable compaction) {
+        this.due = due;
+        this.compaction = compaction;
+        this.thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    RuntimeException getLastFailure() {
+        return lastFailure;
+    }
+
+    void close() {
+        synchronized (lock) {
+            closed = true;
+            if (interruptible) {
+                thread.interrupt();
+            }
+            lock.notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Выполняет запись так, чтобы close() мог ее прервать; вызванная не из потока компактизации - как есть
+    long interruptibly(LongSupplier write) {
+        if (Thread.currentThread() != thread) {
+            return write.getAsLong();
+        }
+        synchronized (lock) {
+            if (closed) {
+                throw new ManagerSaveException("Компактизация остановлена.",
+                        new InterruptedIOException("Запись снимка прервана."));
+            }
+            interruptible = true;
+        }
+        try {
+            return write.getAsLong();
+        } finally {
+            synchronized (lock) {
+                interruptible = false;
+                // Непогашенное прерывание не должно достаться следующей работе с журналом
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private void run() {
+        long pause = CHECK_INTERVAL_MILLIS;
+        while (await(pause)) {
+            pause = CHECK_INTERVAL_MILLIS;
+            try {
+                if (due.getAsBoolean()) {
+                    compaction.run();
+                    lastFailure = null;
+                }
+            } catch (RuntimeException e) {
+                lastFailure = e;
+                pause = FAILURE_BACKOFF_MILLIS;
+            }
+        }
+    }
+
+    private boolean await(long millis) {
+        synchronized (lock) {
+            try {
+                if (!closed) {
+                    lock.wait(millis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            return !closed;
+        }
+    }
+}
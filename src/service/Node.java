@@ -3,11 +3,18 @@ package service;
 import model.Task;
 
 public class Node {
+    final int id;
     Task task;
     Node prev;
     Node next;
+    long estimatedBytes;
 
     public Node(Task task) {
+        this(task.getId(), task);
+    }
+
+    Node(int id, Task task) {
+        this.id = id;
         this.task = task;
     }
 }
@@ -0,0 +1,136 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Неизменяемое отображение неотрицательный int -> объект: 32-ричное дерево по битам ключа.
+// put и remove копируют только путь от корня до листа (log32 n узлов), остальное дерево
+// разделяется между версиями, поэтому старые версии остаются целыми и доступны без блокировок.
+final class PersistentIntMap<V> {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final int MAX_SHIFT = 30;
+    private static final PersistentIntMap<?> EMPTY = new PersistentIntMap<>(null, 0, 0);
+
+    private final Object[] root;
+    private final int shift;
+    private final int size;
+
+    private PersistentIntMap(Object[] root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        if (key < 0 || root == null || !fits(key, shift)) {
+            return null;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(key >>> level) & MASK];
+            if (node == null) {
+                return null;
+            }
+        }
+        return (V) node[key & MASK];
+    }
+
+    PersistentIntMap<V> put(int key, V value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Ключ не может быть отрицательным: " + key);
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("Значение не может быть null.");
+        }
+        Object[] newRoot = root;
+        int newShift = shift;
+        while (!fits(key, newShift)) {
+            if (newRoot != null) {
+                Object[] wrapper = new Object[WIDTH];
+                wrapper[0] = newRoot;
+                newRoot = wrapper;
+            }
+            newShift += BITS;
+        }
+        boolean[] added = new boolean[1];
+        newRoot = put(newRoot, newShift, key, value, added);
+        return new PersistentIntMap<>(newRoot, newShift, added[0] ? size + 1 : size);
+    }
+
+    PersistentIntMap<V> remove(int key) {
+        if (get(key) == null) {
+            return this;
+        }
+        Object[] newRoot = remove(root, shift, key);
+        return newRoot == null ? empty() : new PersistentIntMap<>(newRoot, shift, size - 1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Значения в порядке возрастания ключа
+    List<V> values() {
+        List<V> values = new ArrayList<>(size);
+        collect(root, shift, values);
+        return values;
+    }
+
+    private static boolean fits(int key, int shift) {
+        return shift >= MAX_SHIFT || (key >>> shift) <= MASK;
+    }
+
+    private static Object[] put(Object[] node, int level, int key, Object value, boolean[] added) {
+        Object[] copy = node != null ? node.clone() : new Object[WIDTH];
+        int index = (key >>> level) & MASK;
+        if (level == 0) {
+            added[0] = copy[index] == null;
+            copy[index] = value;
+        } else {
+            copy[index] = put((Object[]) copy[index], level - BITS, key, value, added);
+        }
+        return copy;
+    }
+
+    private static Object[] remove(Object[] node, int level, int key) {
+        int index = (key >>> level) & MASK;
+        Object child = level == 0 ? null : remove((Object[]) node[index], level - BITS, key);
+        Object[] copy = node.clone();
+        copy[index] = child;
+        for (Object slot : copy) {
+            if (slot != null) {
+                return copy;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void collect(Object[] node, int level, List<V> values) {
+        if (node == null) {
+            return;
+        }
+        for (Object child : node) {
+            if (child == null) {
+                continue;
+            }
+            if (level == 0) {
+                values.add((V) child);
+            } else {
+                collect((Object[]) child, level - BITS, values);
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package service;
+
+import model.Epic;
+import model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+
+// Расписание упорядочено по (начало, id): задачи с одинаковым началом не схлопываются.
+// Ключ, с которым задача попала в индекс, запоминается по id, поэтому удаление находит запись,
+// даже если поля задачи успели измениться снаружи.
+class ScheduleIndex {
+    private final NavigableMap<Slot, Task> tasksBySlot;
+    private final Map<Integer, Slot> slotsById;
+
+    ScheduleIndex() {
+        this(new TreeMap<>(), new HashMap<>());
+    }
+
+    private ScheduleIndex(NavigableMap<Slot, Task> tasksBySlot, Map<Integer, Slot> slotsById) {
+        this.tasksBySlot = tasksBySlot;
+        this.slotsById = slotsById;
+    }
+
+    static ScheduleIndex concurrent() {
+        return new ScheduleIndex(new ConcurrentSkipListMap<>(), new ConcurrentHashMap<>());
+    }
+
+    void add(Task task) {
+        if (!task.hasStartTime()) {
+            return;
+        }
+        Slot slot = new Slot(task.getStartEpochSecond(), task.getStartNano(), task.getId());
+        Slot previous = slotsById.put(task.getId(), slot);
+        if (previous != null) {
+            tasksBySlot.remove(previous);
+        }
+        tasksBySlot.put(slot, task);
+    }
+
+    void remove(Task task) {
+        Slot slot = slotsById.remove(task.getId());
+        if (slot != null) {
+            tasksBySlot.remove(slot);
+        }
+    }
+
+    void clear() {
+        tasksBySlot.clear();
+        slotsById.clear();
+    }
+
+    boolean hasIntersection(Task newTask) {
+        return hasIntersection(newTask, id -> id == newTask.getId());
+    }
+
+    // Задачи с ненулевой длительностью в индексе не пересекаются, поэтому их порядок по началу
+    // совпадает с порядком по концу: обход назад от конца новой задачи останавливается на первой такой
+    // задаче. Задачи нулевой длительности пропускаются после проверки, задачи без времени не мешают никому.
+    // Задачи с id, для которых replaced возвращает true, не учитываются: при обновлении их слоты освобождаются.
+    boolean hasIntersection(Task newTask, IntPredicate replaced) {
+        if (!newTask.hasTimeSlot()) {
+            return false;
+        }
+        Slot end = new Slot(newTask.getEndEpochSecond(), newTask.getEndNano(), Integer.MIN_VALUE);
+        for (Map.Entry<Slot, Task> entry = tasksBySlot.lowerEntry(end);
+             entry != null;
+             entry = tasksBySlot.lowerEntry(entry.getKey())) {
+            Task existingTask = entry.getValue();
+            if (replaced.test(existingTask.getId()) || !existingTask.hasTimeSlot()) {
+                continue;
+            }
+            if (newTask.startsBeforeEndOf(existingTask)) {
+                return true;
+            }
+            if (hasPositiveDuration(existingTask)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    // Проверка пакета за один проход: задачи пакета сортируются по началу и сравниваются с той
+    // из предыдущих, что заканчивается позже всех, а каждая - еще и с индексом. Эпики не в расписании.
+    void checkBatch(Collection<? extends Task> batch, IntPredicate replaced) {
+        List<Task> timed = new ArrayList<>();
+        for (Task task : batch) {
+            if (!(task instanceof Epic) && task.hasTimeSlot()) {
+                timed.add(task);
+            }
+        }
+        timed.sort(Task::compareStartTo);
+        Task latestEnding = null;
+        for (Task task : timed) {
+            if (latestEnding != null && task.overlaps(latestEnding)) {
+                throw new IllegalArgumentException("Время задачи \"" + task.getName()
+                        + "\" пересекается с другой задачей пакета.");
+            }
+            if (hasIntersection(task, replaced)) {
+                throw new IllegalArgumentException("Время задачи \"" + task.getName()
+                        + "\" пересекается с существующими задачами.");
+            }
+            if (latestEnding == null || task.getEndTime().isAfter(latestEnding.getEndTime())) {
+                latestEnding = task;
+            }
+        }
+    }
+
+    // Задачи, пересекающиеся с интервалом [from, to). Из начавшихся раньше from пересечься может
+    // только ближайшая задача ненулевой длительности, поэтому результат - представление одного
+    // подотрезка индекса без копирования (начиная с этой задачи, если она еще идет в момент from).
+    Collection<Task> between(LocalDateTime from, LocalDateTime to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Начало интервала не может быть позже его конца.");
+        }
+        Slot lowerBound = Slot.first(from);
+        Map.Entry<Slot, Task> previous = nearestRunning(tasksBySlot.lowerEntry(lowerBound));
+        if (previous != null && previous.getValue().getEndTime().isAfter(from)) {
+            lowerBound = previous.getKey();
+        }
+        return Collections.unmodifiableCollection(tasksBySlot.subMap(lowerBound, true, Slot.first(to), false).values());
+    }
+
+    Stream<Task> startingAfter(LocalDateTime after, int limit) {
+        checkLimit(limit);
+        return tasksBySlot.tailMap(Slot.last(after), false).values().stream().limit(limit);
+    }
+
+    Stream<Task> startingBefore(LocalDateTime before, int limit) {
+        checkLimit(limit);
+        return tasksBySlot.headMap(Slot.first(before), false).descendingMap().values().stream().limit(limit);
+    }
+
+    // Самое раннее окно длиной не меньше duration, начинающееся не раньше after.
+    // Каждый шаг - один поиск в индексе и перенос кандидата за очередную задачу или на следующий
+    // рабочий день, поэтому время зависит от числа просмотренных промежутков, а не от размера доски.
+    // Если рабочие часы не заданы (null), ограничений по времени суток нет.
+    Optional<LocalDateTime> findFreeSlot(LocalDateTime after, Duration duration,
+                                         LocalTime workdayStart, LocalTime workdayEnd) {
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("Длительность не может быть отрицательной.");
+        }
+        boolean workingHours = workdayStart != null || workdayEnd != null;
+        if (workingHours) {
+            if (workdayStart == null || workdayEnd == null || !workdayStart.isBefore(workdayEnd)) {
+                throw new IllegalArgumentException("Начало рабочего дня должно быть раньше его конца.");
+            }
+            if (duration.compareTo(Duration.between(workdayStart, workdayEnd)) > 0) {
+                return Optional.empty();
+            }
+        }
+        LocalDateTime candidate = after;
+        while (true) {
+            if (workingHours) {
+                candidate = alignToWorkingHours(candidate, duration, workdayStart, workdayEnd);
+            }
+            Map.Entry<Slot, Task> running = nearestRunning(tasksBySlot.floorEntry(Slot.last(candidate)));
+            if (running != null && running.getValue().getEndTime().isAfter(candidate)) {
+                candidate = running.getValue().getEndTime();
+                continue;
+            }
+            Task next = nextScheduled(tasksBySlot.higherEntry(Slot.last(candidate)));
+            if (next == null || !candidate.plus(duration).isAfter(next.getStartTime())) {
+                return Optional.of(candidate);
+            }
+            candidate = next.getEndTime();
+        }
+    }
+
+    Stream<Task> stream() {
+        return tasksBySlot.values().stream();
+    }
+
+    int size() {
+        return slotsById.size();
+    }
+
+    List<Task> toList() {
+        return new ArrayList<>(tasksBySlot.values());
+    }
+
+    // Ближайшая назад задача ненулевой длительности: только такая может еще идти в момент ключа
+    private Map.Entry<Slot, Task> nearestRunning(Map.Entry<Slot, Task> entry) {
+        while (entry != null && !hasPositiveDuration(entry.getValue())) {
+            entry = tasksBySlot.lowerEntry(entry.getKey());
+        }
+        return entry;
+    }
+
+    // Ближайшая вперед задача со временем; задачи без длительности слот не занимают
+    private Task nextScheduled(Map.Entry<Slot, Task> entry) {
+        while (entry != null && !entry.getValue().hasTimeSlot()) {
+            entry = tasksBySlot.higherEntry(entry.getKey());
+        }
+        return entry != null ? entry.getValue() : null;
+    }
+
+    private static boolean hasPositiveDuration(Task task) {
+        return task.hasTimeSlot() && task.startsBeforeEndOf(task);
+    }
+
+    private static LocalDateTime alignToWorkingHours(LocalDateTime candidate, Duration duration,
+                                                     LocalTime workdayStart, LocalTime workdayEnd) {
+        if (candidate.toLocalTime().isBefore(workdayStart)) {
+            return candidate.toLocalDate().atTime(workdayStart);
+        }
+        if (candidate.plus(duration).isAfter(candidate.toLocalDate().atTime(workdayEnd))) {
+            return candidate.toLocalDate().plusDays(1).atTime(workdayStart);
+        }
+        return candidate;
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Лимит не может быть отрицательным.");
+        }
+    }
+
+    // Неизменяемый ключ расписания; first и last - границы для поиска всех задач с заданным началом
+    static final class Slot implements Comparable<Slot> {
+        private final long seconds;
+        private final int nanos;
+        private final int id;
+
+        Slot(LocalDateTime start, int id) {
+            this(start.toEpochSecond(ZoneOffset.UTC), start.getNano(), id);
+        }
+
+        Slot(long seconds, int nanos, int id) {
+            this.seconds = seconds;
+            this.nanos = nanos;
+            this.id = id;
+        }
+
+        static Slot first(LocalDateTime start) {
+            return new Slot(start, Integer.MIN_VALUE);
+        }
+
+        static Slot last(LocalDateTime start) {
+            return new Slot(start, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public int compareTo(Slot other) {
+            int bySeconds = Long.compare(seconds, other.seconds);
+            if (bySeconds != 0) {
+                return bySeconds;
+            }
+            int byNanos = Integer.compare(nanos, other.nanos);
+            return byNanos != 0 ? byNanos : Integer.compare(id, other.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Slot)) return false;
+            Slot slot = (Slot) o;
+            return seconds == slot.seconds && nanos == slot.nanos && id == slot.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(seconds, nanos, id);
+        }
+    }
+}
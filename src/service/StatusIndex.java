@@ -0,0 +1,91 @@
+package service;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import utils.Status;
+import utils.TypeTask;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Вторичный индекс по типу и статусу: для каждой пары хранится отображение id -> задача,
+// поэтому выборка обходит только подходящие задачи, а не всю доску.
+// Статус эпика меняется вместе с подзадачами, поэтому после изменения подзадач эпик индексируется заново.
+class StatusIndex {
+    private static final int STATUSES = Status.values().length;
+
+    private final List<Map<Integer, Task>> buckets = new ArrayList<>();
+
+    StatusIndex() {
+        this(LinkedHashMap::new);
+    }
+
+    StatusIndex(Supplier<Map<Integer, Task>> bucketFactory) {
+        for (int i = 0; i < TypeTask.values().length * STATUSES; i++) {
+            buckets.add(bucketFactory.get());
+        }
+    }
+
+    void put(Task task) {
+        TypeTask type = typeOf(task);
+        Status status = task.getStatus() != null ? task.getStatus() : Status.NEW;
+        for (Status other : Status.values()) {
+            if (other != status) {
+                bucket(type, other).remove(task.getId());
+            }
+        }
+        bucket(type, status).put(task.getId(), task);
+    }
+
+    void remove(Task task) {
+        TypeTask type = typeOf(task);
+        for (Status status : Status.values()) {
+            bucket(type, status).remove(task.getId());
+        }
+    }
+
+    void clear(TypeTask type) {
+        for (Status status : Status.values()) {
+            bucket(type, status).clear();
+        }
+    }
+
+    void clear() {
+        for (Map<Integer, Task> bucket : buckets) {
+            bucket.clear();
+        }
+    }
+
+    List<Task> get(TypeTask type, Status status) {
+        return List.copyOf(bucket(type, status).values());
+    }
+
+    List<Task> get(Status status) {
+        List<Task> result = new ArrayList<>();
+        for (TypeTask type : TypeTask.values()) {
+            result.addAll(bucket(type, status).values());
+        }
+        return result;
+    }
+
+    int size(TypeTask type, Status status) {
+        return bucket(type, status).size();
+    }
+
+    static TypeTask typeOf(Task task) {
+        if (task instanceof Subtask) {
+            return TypeTask.SUBTASK;
+        } else if (task instanceof Epic) {
+            return TypeTask.EPIC;
+        }
+        return TypeTask.TASK;
+    }
+
+    private Map<Integer, Task> bucket(TypeTask type, Status status) {
+        return buckets.get(type.ordinal() * STATUSES + status.ordinal());
+    }
+}
@@ -0,0 +1,93 @@
+package service;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import utils.TypeTask;
+
+// Изменение одной задачи. Образы до и после - неизменяемые копии на момент операции:
+// before отсутствует у CREATED, after - у DELETED. Изменение подзадачи порождает и событие
+// UPDATED ее эпика, если пересчитались его статус или время.
+// Номера ведет каждая подписка: они возрастают без пропусков. Если буфер подписки переполнился,
+// на месте потерянных событий приходит одно событие OVERFLOW без задачи: его номер - номер последнего
+// потерянного, getLostCount - их число. После него копию доски у подписчика нужно перечитать целиком.
+// События одной задачи приходят в порядке операций над ней.
+public final class TaskEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        OVERFLOW
+    }
+
+    private final Type type;
+    private final TypeTask taskType;
+    private final int taskId;
+    private final Task before;
+    private final Task after;
+    private final long sequence;
+    private final long lostCount;
+
+    TaskEvent(Type type, Task before, Task after) {
+        this(type, before, after, 0, 0);
+    }
+
+    private TaskEvent(Type type, Task before, Task after, long sequence, long lostCount) {
+        Task image = after != null ? after : before;
+        this.type = type;
+        this.taskType = image == null ? null : image instanceof Subtask ? TypeTask.SUBTASK
+                : image instanceof Epic ? TypeTask.EPIC : TypeTask.TASK;
+        this.taskId = image == null ? 0 : image.getId();
+        this.before = before;
+        this.after = after;
+        this.sequence = sequence;
+        this.lostCount = lostCount;
+    }
+
+    static TaskEvent overflow(long sequence, long lostCount) {
+        return new TaskEvent(Type.OVERFLOW, null, null, sequence, lostCount);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public TypeTask getTaskType() {
+        return taskType;
+    }
+
+    public int getTaskId() {
+        return taskId;
+    }
+
+    public Task getBefore() {
+        return before;
+    }
+
+    public Task getAfter() {
+        return after;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    // Число потерянных событий перед OVERFLOW; у остальных событий 0
+    public long getLostCount() {
+        return lostCount;
+    }
+
+    // Образы общие для всех подписок, копируется только обертка с номером
+    TaskEvent withSequence(long sequence) {
+        return new TaskEvent(type, before, after, sequence, lostCount);
+    }
+
+    @Override
+    public String toString() {
+        if (type == Type.OVERFLOW) {
+            return "TaskEvent{" + sequence + " " + type + " " + lostCount + "}";
+        }
+        return "TaskEvent{" + sequence + " " + type + " " + taskType + " " + taskId + "}";
+    }
+}
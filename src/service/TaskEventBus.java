@@ -0,0 +1,78 @@
+package service;
+
+import model.Task;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Публикация событий менеджера подписчикам. Пока подписчиков нет, методы ничего не копируют,
+// поэтому путь записи без подписок не меняется. Образы задач - копии из BoardSnapshot.freeze:
+// последующие изменения исходных объектов на событиях не сказываются.
+// Общей блокировки у шины нет: событие раскладывается по буферам подписок, и каждый буфер нумерует
+// свои события сам, под собственной короткой блокировкой: писатели разных эпиков встречаются только на ней.
+// События одной задачи публикуются под блокировкой менеджера и приходят в порядке операций.
+final class TaskEventBus {
+    private final List<TaskSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    TaskSubscription subscribe(Consumer<List<TaskEvent>> listener, int capacity, int maxBatch) {
+        TaskSubscription subscription = new TaskSubscription(this, listener, capacity, maxBatch);
+        subscriptions.add(subscription);
+        subscription.start();
+        return subscription;
+    }
+
+    void unsubscribe(TaskSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    boolean isActive() {
+        return !subscriptions.isEmpty();
+    }
+
+    // Образ задачи до изменения; null, если подписчиков нет
+    Task image(Task task) {
+        return task != null && isActive() ? BoardSnapshot.freeze(task) : null;
+    }
+
+    void created(Task task) {
+        if (isActive()) {
+            publish(new TaskEvent(TaskEvent.Type.CREATED, null, BoardSnapshot.freeze(task)));
+        }
+    }
+
+    // before - образ, снятый через image до изменения. Если подписка появилась уже во время
+    // операции, образа нет и событие не публикуется: подписчик видит операции, начатые после подписки.
+    void updated(Task before, Task task) {
+        if (before != null && isActive()) {
+            publish(new TaskEvent(TaskEvent.Type.UPDATED, before, BoardSnapshot.freeze(task)));
+        }
+    }
+
+    // Эпик после изменения его подзадач: событие публикуется, только если пересчитались статус или время
+    void epicRecalculated(Task before, Task epic) {
+        if (before == null || !isActive()) {
+            return;
+        }
+        Task after = BoardSnapshot.freeze(epic);
+        if (before.getStatus() != after.getStatus()
+                || !Objects.equals(before.getStartTime(), after.getStartTime())
+                || !Objects.equals(before.getDuration(), after.getDuration())
+                || !Objects.equals(before.getEndTime(), after.getEndTime())) {
+            publish(new TaskEvent(TaskEvent.Type.UPDATED, before, after));
+        }
+    }
+
+    void deleted(Task task) {
+        if (isActive()) {
+            publish(new TaskEvent(TaskEvent.Type.DELETED, BoardSnapshot.freeze(task), null));
+        }
+    }
+
+    private void publish(TaskEvent event) {
+        for (TaskSubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+}
@@ -3,8 +3,18 @@ package service;
 import model.Epic;
 import model.Subtask;
 import model.Task;
+import utils.Status;
+import utils.TypeTask;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 public interface TaskManager {
     Task createTask(Task task);
@@ -13,6 +23,12 @@ public interface TaskManager {
 
     Epic createEpic(Epic epic);
 
+    List<Task> createAll(Collection<? extends Task> tasks);
+
+    void updateAll(Collection<? extends Task> tasks);
+
+    List<Task> deleteWhere(Predicate<? super Task> filter);
+
     List<Task> getAllTasks();
 
     List<Subtask> getAllSubtasks();
@@ -27,6 +43,19 @@ public interface TaskManager {
 
     List<Subtask> getSubtaskByEpic(int epicId);
 
+    List<Task> getByStatus(Status status);
+
+    List<Task> getByType(TypeTask type);
+
+    List<Task> getByTypeAndStatus(TypeTask type, Status status);
+
+    Stream<Task> stream(TypeTask type);
+
+    List<Task> getPage(TypeTask type, int afterId, int limit);
+
+    // Проверка наличия без побочных эффектов: в отличие от getById задача не попадает в историю
+    boolean contains(TypeTask type, int id);
+
     void updateTask(Task task);
 
     void updateSubtask(Subtask subtask);
@@ -49,5 +78,26 @@ public interface TaskManager {
 
     List<Task> getHistory();
 
+    List<Task> getHistory(int offset, int limit);
+
     public List<Task> getPrioritizedTasks();
+
+    Stream<Task> streamPrioritizedTasks();
+
+    Collection<Task> getTasksBetween(LocalDateTime from, LocalDateTime to);
+
+    Stream<Task> getNextTasks(LocalDateTime after, int limit);
+
+    Stream<Task> getPreviousTasks(LocalDateTime before, int limit);
+
+    Optional<LocalDateTime> findFreeSlot(LocalDateTime after, Duration duration);
+
+    Optional<LocalDateTime> findFreeSlot(LocalDateTime after, Duration duration,
+                                         LocalTime workdayStart, LocalTime workdayEnd);
+
+    default TaskSubscription subscribe(Consumer<List<TaskEvent>> listener) {
+        return subscribe(listener, TaskSubscription.DEFAULT_CAPACITY, TaskSubscription.DEFAULT_MAX_BATCH);
+    }
+
+    TaskSubscription subscribe(Consumer<List<TaskEvent>> listener, int capacity, int maxBatch);
 }
@@ -0,0 +1,14 @@
+package service;
+
+// Размеры внутренних структур менеджера для мониторинга; чтение не копирует коллекции.
+public interface TaskManagerGauges {
+    int getTaskCount();
+
+    int getSubtaskCount();
+
+    int getEpicCount();
+
+    int getPrioritizedCount();
+
+    int getHistorySize();
+}
@@ -0,0 +1,100 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Подписка на события менеджера. События доставляются пачками в отдельном виртуальном потоке,
+// по порядку номеров. Медленный подписчик не задерживает запись: при переполнении его буфера
+// новые события отбрасываются, их число возвращает getDroppedCount, а в потоке событий на месте потери
+// приходит TaskEvent.Type.OVERFLOW - сигнал перечитать доску. Маркеры в getDeliveredCount не входят.
+// Исключение обработчика не прерывает доставку, такие пачки считаются в getFailedBatchCount.
+public final class TaskSubscription implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_MAX_BATCH = 64;
+
+    private final EventRingBuffer buffer;
+    private final Consumer<List<TaskEvent>> listener;
+    private final int maxBatch;
+    private final TaskEventBus bus;
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private volatile boolean closed;
+
+    TaskSubscription(TaskEventBus bus, Consumer<List<TaskEvent>> listener, int capacity, int maxBatch) {
+        if (maxBatch <= 0) {
+            throw new IllegalArgumentException("Размер пачки должен быть положительным.");
+        }
+        this.buffer = new EventRingBuffer(capacity);
+        this.listener = listener;
+        this.maxBatch = maxBatch;
+        this.bus = bus;
+    }
+
+    void start() {
+        Thread.ofVirtual().name("task-events").start(this::deliver);
+    }
+
+    boolean offer(TaskEvent event) {
+        return buffer.offer(event);
+    }
+
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    public long getDroppedCount() {
+        return buffer.getDropped();
+    }
+
+    public long getFailedBatchCount() {
+        return failedBatches.get();
+    }
+
+    public int getPendingCount() {
+        return buffer.size();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // Недоставленные события отбрасываются; текущая пачка дорабатывает до конца
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        bus.unsubscribe(this);
+        buffer.close();
+    }
+
+    private static int overflowMarkers(List<TaskEvent> batch) {
+        int count = 0;
+        for (TaskEvent event : batch) {
+            if (event.getType() == TaskEvent.Type.OVERFLOW) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void deliver() {
+        List<TaskEvent> batch = new ArrayList<>(maxBatch);
+        try {
+            while (buffer.drainTo(batch, maxBatch)) {
+                try {
+                    listener.accept(List.copyOf(batch));
+                } catch (RuntimeException e) {
+                    failedBatches.incrementAndGet();
+                }
+                delivered.addAndGet(batch.size() - overflowMarkers(batch));
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
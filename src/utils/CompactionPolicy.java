@@ -0,0 +1,42 @@
+package utils;
+
+// Условия фоновой компактизации журнала: она запускается, когда журнал вырос до maxJournalBytes,
+// накопил maxJournalOperations записей или с прошлой компактизации прошло maxIntervalMillis.
+// maxWriteBytesPerSecond ограничивает скорость записи снимка, чтобы не мешать основной нагрузке.
+// Ноль отключает соответствующее условие или ограничение.
+public final class CompactionPolicy {
+    private final long maxJournalBytes;
+    private final long maxJournalOperations;
+    private final long maxIntervalMillis;
+    private final long maxWriteBytesPerSecond;
+
+    public CompactionPolicy(long maxJournalBytes, long maxJournalOperations, long maxIntervalMillis,
+                            long maxWriteBytesPerSecond) {
+        if (maxJournalBytes < 0 || maxJournalOperations < 0 || maxIntervalMillis < 0 || maxWriteBytesPerSecond < 0) {
+            throw new IllegalArgumentException("Параметры компактизации не могут быть отрицательными.");
+        }
+        if (maxJournalBytes == 0 && maxJournalOperations == 0 && maxIntervalMillis == 0) {
+            throw new IllegalArgumentException("Нужно задать хотя бы одно условие компактизации.");
+        }
+        this.maxJournalBytes = maxJournalBytes;
+        this.maxJournalOperations = maxJournalOperations;
+        this.maxIntervalMillis = maxIntervalMillis;
+        this.maxWriteBytesPerSecond = maxWriteBytesPerSecond;
+    }
+
+    public long getMaxJournalBytes() {
+        return maxJournalBytes;
+    }
+
+    public long getMaxJournalOperations() {
+        return maxJournalOperations;
+    }
+
+    public long getMaxIntervalMillis() {
+        return maxIntervalMillis;
+    }
+
+    public long getMaxWriteBytesPerSecond() {
+        return maxWriteBytesPerSecond;
+    }
+}
@@ -0,0 +1,7 @@
+package utils;
+
+public enum Durability {
+    NONE,
+    BATCH,
+    OPERATION
+}
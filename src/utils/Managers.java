@@ -1,8 +1,11 @@
 package utils;
 
+import service.ConcurrentHistoryManager;
+import service.ConcurrentTaskManager;
 import service.HistoryManager;
 import service.InMemoryHistoryManager;
 import service.InMemoryTaskManager;
+import service.InstrumentedTaskManager;
 import service.TaskManager;
 
 public class Managers {
@@ -11,7 +14,23 @@ public class Managers {
         return new InMemoryTaskManager();
     }
 
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager();
+    }
+
+    public static InstrumentedTaskManager getInstrumented(TaskManager taskManager) {
+        return new InstrumentedTaskManager(taskManager);
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
+
+    public static HistoryManager getBoundedHistory(int maxEntries) {
+        return new InMemoryHistoryManager(maxEntries);
+    }
+
+    public static HistoryManager getConcurrentHistory() {
+        return new ConcurrentHistoryManager();
+    }
 }
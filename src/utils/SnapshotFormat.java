@@ -0,0 +1,8 @@
+package utils;
+
+public enum SnapshotFormat {
+    CSV,
+    BINARY,
+    // Каталог <файл>.segments с CSV-сегментами по диапазонам id; переписываются только измененные сегменты
+    SEGMENTED
+}
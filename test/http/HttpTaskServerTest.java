@@ -0,0 +1,237 @@
+package http;
+
+import model.Epic;
+import model.Task;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import service.InMemoryTaskManager;
+import service.TaskManager;
+import utils.Managers;
+import utils.Status;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpTaskServerTest {
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    private TaskManager taskManager;
+    private HttpTaskServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        taskManager = Managers.getDefault();
+        server = new HttpTaskServer(taskManager, 0);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    @DisplayName("Создание, получение и удаление задачи")
+    void testTaskLifecycle() throws Exception {
+        HttpResponse<String> created = post("/tasks", "{\"name\":\"Купить \\\"мебель\\\"\",\"description\":\"Описание\","
+                + "\"status\":\"NEW\",\"duration\":60,\"startTime\":\"2025-02-01T09:00:00\"}");
+        assertEquals(201, created.statusCode());
+        int id = idOf(created.body());
+
+        HttpResponse<String> found = get("/tasks/" + id);
+        assertEquals(200, found.statusCode());
+        assertTrue(found.body().contains("\"name\":\"Купить \\\"мебель\\\"\""));
+        assertTrue(found.body().contains("\"endTime\":\"2025-02-01T10:00\""));
+        assertEquals("Купить \"мебель\"", taskManager.getTaskById(id).getName());
+
+        assertEquals(200, delete("/tasks/" + id).statusCode());
+        assertEquals(404, get("/tasks/" + id).statusCode());
+        assertEquals("[]", get("/tasks").body());
+    }
+
+    @Test
+    @DisplayName("Обновление задачи и пересечение по времени")
+    void testUpdateAndOverlap() throws Exception {
+        Task task = taskManager.createTask(new Task("Task", "Description", Status.NEW, Duration.ofHours(1),
+                LocalDateTime.of(2025, 02, 1, 9, 0)));
+
+        HttpResponse<String> overlapping = post("/tasks", "{\"name\":\"Other\",\"duration\":30,"
+                + "\"startTime\":\"2025-02-01T09:30:00\"}");
+        assertEquals(406, overlapping.statusCode());
+
+        HttpResponse<String> updated = post("/tasks", "{\"id\":" + task.getId() + ",\"name\":\"Task\","
+                + "\"status\":\"DONE\",\"duration\":60,\"startTime\":\"2025-02-01T09:00:00\"}");
+        assertEquals(201, updated.statusCode());
+        assertEquals(Status.DONE, taskManager.getTaskById(task.getId()).getStatus());
+
+        assertEquals(404, post("/tasks", "{\"id\":999,\"name\":\"Missing\"}").statusCode());
+    }
+
+    @Test
+    @DisplayName("Подзадачи эпика, история и приоритетный список")
+    void testEpicSubtasksHistoryAndPrioritized() throws Exception {
+        assertEquals(404, post("/subtasks", "{\"name\":\"Orphan\",\"epicId\":42}").statusCode());
+
+        int epicId = idOf(post("/epics", "{\"name\":\"Epic\",\"description\":\"Description\"}").body());
+        HttpResponse<String> subtask = post("/subtasks", "{\"name\":\"Subtask\",\"epicId\":" + epicId
+                + ",\"status\":\"IN_PROGRESS\",\"duration\":15,\"startTime\":\"2025-02-02T09:00:00\"}");
+        assertEquals(201, subtask.statusCode());
+        int subtaskId = idOf(subtask.body());
+
+        String subtasks = get("/epics/" + epicId + "/subtasks").body();
+        assertEquals(subtaskId, idOf(subtasks));
+        assertTrue(get("/epics/" + epicId).body().contains("\"status\":\"IN_PROGRESS\""));
+        assertEquals(404, get("/epics/" + (epicId + 100) + "/subtasks").statusCode());
+
+        get("/subtasks/" + subtaskId);
+        assertTrue(get("/history").body().contains("\"id\":" + subtaskId));
+        assertEquals(subtaskId, idOf(get("/prioritized").body()));
+
+        assertEquals(200, delete("/epics/" + epicId).statusCode());
+        assertEquals("[]", get("/subtasks").body());
+    }
+
+    @Test
+    @DisplayName("Некорректные запросы")
+    void testBadRequests() throws Exception {
+        assertEquals(400, post("/tasks", "{\"name\":").statusCode());
+        assertEquals(400, post("/tasks", "{\"name\":\"Task\",\"status\":\"UNKNOWN\"}").statusCode());
+        assertEquals(400, get("/tasks/abc").statusCode());
+        HttpResponse<String> control = get("/tasks/%01");
+        assertEquals(400, control.statusCode());
+        assertTrue(control.body().contains("\\u0001"), "Управляющие символы в ошибке должны экранироваться");
+        assertEquals(404, get("/tasks/1/extra").statusCode());
+        HttpResponse<String> put = client.send(HttpRequest.newBuilder(uri("/tasks"))
+                .PUT(HttpRequest.BodyPublishers.ofString("{}")).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, put.statusCode());
+        assertEquals("GET, POST, DELETE", put.headers().firstValue("Allow").orElse(null));
+        assertEquals("GET", delete("/history").headers().firstValue("Allow").orElse(null));
+        assertEquals("GET", delete("/prioritized").headers().firstValue("Allow").orElse(null));
+        assertEquals("GET", post("/epics/1/subtasks", "{}").headers().firstValue("Allow").orElse(null));
+    }
+
+    @Test
+    @DisplayName("Внутренняя ошибка записывается в журнал сервера")
+    void testServerErrorIsLogged() throws Exception {
+        server.stop();
+        server = new HttpTaskServer(new InMemoryTaskManager() {
+            @Override
+            public List<Task> getHistory() {
+                throw new IllegalStateException("история недоступна");
+            }
+        }, 0);
+        server.start();
+        List<LogRecord> records = new CopyOnWriteArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger("http.BaseHttpHandler");
+        logger.addHandler(handler);
+        try {
+            HttpResponse<String> response = get("/history");
+            assertEquals(500, response.statusCode());
+            assertFalse(response.body().contains("история недоступна"), "Причина не должна уходить клиенту");
+            assertEquals(1, records.size());
+            assertEquals("история недоступна", records.get(0).getThrown().getMessage());
+        } finally {
+            logger.removeHandler(handler);
+        }
+    }
+
+    @Test
+    @DisplayName("Список сжимается, если клиент принимает gzip")
+    void testGzipListing() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            taskManager.createTask(new Task("Task " + i, "Description " + i, Status.NEW, null, null));
+        }
+        HttpResponse<InputStream> response = client.send(HttpRequest.newBuilder(uri("/tasks"))
+                .header("Accept-Encoding", "gzip").GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+        String body;
+        try (InputStream in = new GZIPInputStream(response.body())) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertTrue(body.startsWith("[{\"id\":1,"));
+        assertEquals(100, body.split("\"type\":\"TASK\"").length - 1);
+    }
+
+    @Test
+    @DisplayName("Параллельные запросы к потокобезопасному менеджеру")
+    void testConcurrentRequests() throws Exception {
+        server.stop();
+        taskManager = Managers.getConcurrent();
+        server = new HttpTaskServer(taskManager, 0);
+        server.start();
+        int epicId = taskManager.createEpic(new Epic("Epic", "Description")).getId();
+
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String body = "{\"name\":\"Subtask " + i + "\",\"epicId\":" + epicId + ",\"duration\":5,"
+                    + "\"startTime\":\"" + LocalDateTime.of(2025, 02, 1, 0, 0).plusMinutes(5L * i) + "\"}";
+            responses.add(client.sendAsync(HttpRequest.newBuilder(uri("/subtasks"))
+                    .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(201, response.get().statusCode());
+        }
+        assertEquals(200, taskManager.getSubtaskByEpic(epicId).size());
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri(path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String json) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.ofString(json)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> delete(String path) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri(path)).DELETE().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+
+    private static int idOf(String json) {
+        Matcher matcher = ID.matcher(json);
+        assertTrue(matcher.find(), json);
+        return Integer.parseInt(matcher.group(1));
+    }
+}
@@ -6,8 +6,9 @@ import utils.Status;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 class EpicTest {
     private Epic epic;
@@ -58,4 +59,48 @@ class EpicTest {
         assertEquals(Status.IN_PROGRESS, epic.getStatus());
     }
 
-}
\ No newline at end of file
+    @Test
+    void testEpicRollupFollowsSubtaskChanges() {
+        Subtask subtask1 = new Subtask("Subtask 1", "Description 1", epic.getId(), Status.DONE, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 0));
+        Subtask subtask2 = new Subtask("Subtask 2", "Description 2", epic.getId(), Status.DONE, Duration.ofHours(2), LocalDateTime.of(2025, 2, 1, 12, 0));
+        epic.addSubtask(subtask1);
+        epic.addSubtask(subtask2);
+
+        assertEquals(Duration.ofHours(3), epic.getDuration());
+        assertEquals(LocalDateTime.of(2025, 2, 1, 9, 0), epic.getStartTime());
+        assertEquals(LocalDateTime.of(2025, 2, 1, 14, 0), epic.getEndTime());
+
+        Subtask changed = new Subtask("Subtask 2", "Description 2", epic.getId(), Status.IN_PROGRESS, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 8, 0));
+        epic.replaceSubtask(subtask2, changed);
+
+        assertEquals(Status.IN_PROGRESS, epic.getStatus());
+        assertEquals(Duration.ofHours(2), epic.getDuration());
+        assertEquals(LocalDateTime.of(2025, 2, 1, 8, 0), epic.getStartTime());
+        assertEquals(LocalDateTime.of(2025, 2, 1, 10, 0), epic.getEndTime());
+
+        epic.removeSubtask(changed);
+
+        assertEquals(Status.DONE, epic.getStatus());
+        assertEquals(LocalDateTime.of(2025, 2, 1, 10, 0), epic.getEndTime());
+    }
+
+    @Test
+    void testSubtasksAreKeyedById() {
+        Subtask subtask1 = new Subtask("Subtask 1", "Description 1", epic.getId(), Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 0));
+        Subtask subtask2 = new Subtask("Subtask 2", "Description 2", epic.getId(), Status.DONE, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 10, 0));
+        subtask1.setId(2);
+        subtask2.setId(3);
+        epic.addSubtask(subtask1);
+        epic.addSubtask(subtask2);
+
+        assertEquals(subtask2, epic.getSubtask(3));
+        assertEquals(List.of(subtask1, subtask2), List.copyOf(epic.getSubtaskView()));
+
+        subtask1.setName("Renamed");
+        assertTrue(epic.removeSubtask(subtask1));
+        assertEquals(1, epic.getSubtaskCount());
+        assertEquals(Status.DONE, epic.getStatus());
+        assertThrows(UnsupportedOperationException.class, () -> epic.getSubtaskView().clear());
+    }
+
+}
@@ -0,0 +1,40 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+import utils.Status;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskTest {
+
+    @Test
+    void testTimeRoundTripAndEndTime() {
+        LocalDateTime start = LocalDateTime.of(2025, 2, 1, 9, 0, 15, 123_456_789);
+        Task task = new Task("Task 1", "Description 1", Status.NEW, Duration.ofMinutes(90).plusNanos(900_000_000), start);
+
+        assertEquals(start, task.getStartTime());
+        assertEquals(Duration.ofMinutes(90).plusNanos(900_000_000), task.getDuration());
+        assertEquals(start.plusMinutes(90).plusNanos(900_000_000), task.getEndTime());
+
+        task.setDuration(null);
+        assertNull(task.getEndTime());
+        assertFalse(task.hasTimeSlot());
+    }
+
+    @Test
+    void testOverlaps() {
+        Task task1 = new Task("Task 1", "Description 1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 0));
+        Task task2 = new Task("Task 2", "Description 2", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 10, 0));
+        Task task3 = new Task("Task 3", "Description 3", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 30));
+        Task untimed = new Task("Task 4", "Description 4", Status.NEW, Duration.ofHours(1), null);
+
+        assertFalse(task1.overlaps(task2));
+        assertTrue(task1.overlaps(task3));
+        assertTrue(task3.overlaps(task2));
+        assertFalse(task1.overlaps(untimed));
+        assertTrue(task1.compareStartTo(task3) < 0);
+    }
+}
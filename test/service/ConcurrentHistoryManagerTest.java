@@ -0,0 +1,81 @@
+package service;
+
+import model.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import utils.Status;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConcurrentHistoryManagerTest {
+    private ConcurrentHistoryManager historyManager;
+
+    @BeforeEach
+    void setUp() {
+        historyManager = new ConcurrentHistoryManager();
+    }
+
+    private Task task(int id) {
+        Task task = new Task("Task " + id, "Description " + id, Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 9, 0));
+        task.setId(id);
+        return task;
+    }
+
+    @Test
+    @DisplayName("Порядок истории совпадает с порядком вызовов")
+    void keepsOrderOfCalls() {
+        InMemoryHistoryManager expected = new InMemoryHistoryManager();
+        for (int i = 0; i < 500; i++) {
+            Task task = task(i % 37);
+            historyManager.add(task);
+            expected.add(task);
+            if (i % 11 == 0) {
+                historyManager.remove(i % 13);
+                expected.remove(i % 13);
+            }
+        }
+
+        assertEquals(expected.getHistory(), historyManager.getHistory());
+    }
+
+    @Test
+    @DisplayName("Удаление после добавления применяется при чтении истории")
+    void removeAfterAdd() {
+        historyManager.add(task(1));
+        historyManager.add(task(2));
+        historyManager.remove(1);
+
+        List<Task> history = historyManager.getHistory();
+        assertEquals(1, history.size());
+        assertEquals(2, history.get(0).getId());
+    }
+
+    @Test
+    @DisplayName("Параллельные просмотры не теряются")
+    void concurrentAdds() throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t * 1000;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    historyManager.add(task(offset + i));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<Task> history = historyManager.getHistory();
+        assertEquals(8000, history.size());
+        assertEquals(8000, history.stream().map(Task::getId).distinct().count());
+    }
+}
@@ -0,0 +1,232 @@
+package service;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import utils.Status;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+
+    @Override
+    protected ConcurrentTaskManager createTaskManager() {
+        taskManager = new ConcurrentTaskManager();
+        return taskManager;
+    }
+
+    @Test
+    @DisplayName("Эпик отдается копией, а перенос подзадачи обновляет оба эпика")
+    void testEpicCopiesAndSubtaskMove() {
+        Epic first = taskManager.createEpic(new Epic("Epic1", "Description Epic1"));
+        Epic second = taskManager.createEpic(new Epic("Epic2", "Description Epic2"));
+        Subtask subtask = taskManager.createSubtask(new Subtask("Subtask1", "Description Subtask1", first.getId(), Status.DONE, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 9, 0)));
+
+        Epic copy = taskManager.getEpicById(first.getId());
+        copy.clearSubtasks();
+        assertEquals(Status.DONE, taskManager.getEpicById(first.getId()).getStatus());
+        assertEquals(List.of(subtask), taskManager.getEpicById(first.getId()).getSubtasks());
+
+        Subtask moved = new Subtask("Subtask1", "Description Subtask1", second.getId(), Status.DONE, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 9, 0));
+        moved.setId(subtask.getId());
+        taskManager.updateSubtask(moved);
+
+        assertTrue(taskManager.getEpicById(first.getId()).getSubtasks().isEmpty());
+        assertEquals(Status.NEW, taskManager.getEpicById(first.getId()).getStatus());
+        assertEquals(List.of(moved), taskManager.getEpicById(second.getId()).getSubtasks());
+        assertEquals(Status.DONE, taskManager.getEpicById(second.getId()).getStatus());
+    }
+
+    @Test
+    @DisplayName("Параллельное создание подзадач в разных эпиках")
+    void testConcurrentSubtaskCreation() throws Exception {
+        int threads = 8;
+        int subtasksPerEpic = 200;
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            epics.add(taskManager.createEpic(new Epic("Epic " + i, "Description " + i)));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Epic epic = epics.get(i);
+            LocalDateTime dayStart = LocalDateTime.of(2025, 02, 1, 0, 0).plusDays(i);
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < subtasksPerEpic; j++) {
+                    Subtask subtask = taskManager.createSubtask(new Subtask("Subtask " + j, "Description", epic.getId(),
+                            Status.NEW, Duration.ofMinutes(5), dayStart.plusMinutes(5L * j)));
+                    taskManager.getSubtaskById(subtask.getId());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertEquals(threads * subtasksPerEpic, taskManager.getAllSubtasks().size());
+        assertEquals(threads * subtasksPerEpic, taskManager.getPrioritizedTasks().size());
+        for (Epic epic : epics) {
+            assertEquals(subtasksPerEpic, taskManager.getSubtaskByEpic(epic.getId()).size());
+        }
+    }
+
+    @Test
+    @DisplayName("Пересекающиеся задачи отклоняются при параллельном создании")
+    void testConcurrentOverlapIsRejected() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 100; j++) {
+                    try {
+                        taskManager.createTask(new Task("Task", "Description", Status.NEW, Duration.ofMinutes(30),
+                                LocalDateTime.of(2025, 02, 1, 0, 0).plusMinutes(10L * j)));
+                    } catch (IllegalArgumentException ignored) {
+                        // пересечение с задачей другого потока
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        List<Task> prioritized = taskManager.getPrioritizedTasks();
+        for (int i = 1; i < prioritized.size(); i++) {
+            assertFalse(prioritized.get(i).getStartTime().isBefore(prioritized.get(i - 1).getEndTime()));
+        }
+        assertEquals(taskManager.getAllTasks().size(), prioritized.size());
+    }
+
+    @Test
+    @DisplayName("Снимок доски не меняется после последующих записей")
+    void testSnapshotIsImmutable() {
+        Epic epic = taskManager.createEpic(new Epic("Epic", "Description"));
+        Subtask subtask = taskManager.createSubtask(new Subtask("Subtask", "Description", epic.getId(),
+                Status.NEW, Duration.ofMinutes(30), LocalDateTime.of(2025, 02, 1, 10, 0)));
+        BoardSnapshot before = taskManager.snapshot();
+
+        Subtask updated = new Subtask("Subtask", "Description", epic.getId(),
+                Status.DONE, Duration.ofMinutes(30), LocalDateTime.of(2025, 02, 1, 10, 0));
+        updated.setId(subtask.getId());
+        taskManager.updateSubtask(updated);
+        taskManager.createTask(new Task("Task", "Description", Status.NEW, null, null));
+        BoardSnapshot after = taskManager.snapshot();
+
+        assertEquals(Status.NEW, before.getSubtaskById(subtask.getId()).getStatus());
+        assertEquals(Status.NEW, before.getEpicById(epic.getId()).getStatus());
+        assertTrue(before.getAllTasks().isEmpty());
+        assertEquals(Status.DONE, after.getSubtaskById(subtask.getId()).getStatus());
+        assertEquals(Status.DONE, after.getEpicById(epic.getId()).getStatus());
+        assertEquals(1, after.getAllTasks().size());
+        assertEquals(before.getVersion() + 2, after.getVersion());
+    }
+
+    @Test
+    @DisplayName("Изменение задачи, полученной из снимка, не меняет снимки")
+    void testSnapshotReturnsCopies() {
+        Task task = taskManager.createTask(new Task("Task", "Description", Status.NEW,
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 02, 1, 10, 0)));
+        BoardSnapshot snapshot = taskManager.snapshot();
+
+        snapshot.getTaskById(task.getId()).setStatus(Status.DONE);
+        snapshot.getAllTasks().get(0).setName("Changed");
+        snapshot.getPrioritizedTasks().get(0).setStartTime(LocalDateTime.of(2025, 02, 2, 10, 0));
+
+        assertEquals(Status.NEW, snapshot.getTaskById(task.getId()).getStatus());
+        assertEquals("Task", snapshot.getAllTasks().get(0).getName());
+        assertEquals(LocalDateTime.of(2025, 02, 1, 10, 0), snapshot.getPrioritizedTasks().get(0).getStartTime());
+        assertEquals(Status.NEW, taskManager.snapshot().getTaskById(task.getId()).getStatus());
+    }
+
+    @Test
+    @DisplayName("Удаление эпика убирает из снимка и его подзадачи")
+    void testSnapshotAfterEpicDeletion() {
+        Epic epic = taskManager.createEpic(new Epic("Epic", "Description"));
+        Subtask subtask = taskManager.createSubtask(new Subtask("Subtask", "Description", epic.getId(),
+                Status.NEW, Duration.ofMinutes(30), LocalDateTime.of(2025, 02, 1, 10, 0)));
+
+        taskManager.deleteEpic(epic.getId());
+        BoardSnapshot snapshot = taskManager.snapshot();
+
+        assertNull(snapshot.getEpicById(epic.getId()));
+        assertNull(snapshot.getSubtaskById(subtask.getId()));
+        assertTrue(snapshot.getPrioritizedTasks().isEmpty());
+        assertTrue(snapshot.getSubtaskByEpic(epic.getId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Перенос подзадачи в другой эпик меняет подзадачи обоих эпиков в новом снимке")
+    void testSnapshotSubtasksByEpicAfterMove() {
+        Epic first = taskManager.createEpic(new Epic("Epic 1", "Description"));
+        Epic second = taskManager.createEpic(new Epic("Epic 2", "Description"));
+        Subtask subtask = taskManager.createSubtask(new Subtask("Subtask", "Description", first.getId(),
+                Status.NEW, null, null));
+        BoardSnapshot before = taskManager.snapshot();
+
+        Subtask moved = new Subtask("Subtask", "Description", second.getId(), Status.NEW, null, null);
+        moved.setId(subtask.getId());
+        taskManager.updateSubtask(moved);
+        BoardSnapshot after = taskManager.snapshot();
+
+        assertEquals(List.of(subtask.getId()),
+                before.getSubtaskByEpic(first.getId()).stream().map(Task::getId).toList());
+        assertTrue(before.getSubtaskByEpic(second.getId()).isEmpty());
+        assertTrue(after.getSubtaskByEpic(first.getId()).isEmpty());
+        assertEquals(second.getId(), after.getSubtaskByEpic(second.getId()).get(0).getEpicId());
+    }
+
+    @Test
+    @DisplayName("Снимок согласован с менеджером после параллельных записей")
+    void testSnapshotMatchesManagerAfterConcurrentWrites() throws Exception {
+        int threads = 4;
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            epics.add(taskManager.createEpic(new Epic("Epic " + i, "Description " + i)));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Epic epic = epics.get(i);
+            LocalDateTime dayStart = LocalDateTime.of(2025, 02, 1, 0, 0).plusDays(i);
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 100; j++) {
+                    Subtask subtask = taskManager.createSubtask(new Subtask("Subtask " + j, "Description",
+                            epic.getId(), Status.NEW, Duration.ofMinutes(5), dayStart.plusMinutes(5L * j)));
+                    if (j % 2 == 0) {
+                        taskManager.deleteSubtask(subtask.getId());
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        BoardSnapshot snapshot = taskManager.snapshot();
+        assertEquals(taskManager.getAllSubtasks().size(), snapshot.getAllSubtasks().size());
+        assertEquals(taskManager.getPrioritizedTasks().size(), snapshot.getPrioritizedTasks().size());
+        for (Epic epic : epics) {
+            assertEquals(50, snapshot.getSubtaskByEpic(epic.getId()).size());
+            assertEquals(epic.getStartTime(), snapshot.getEpicById(epic.getId()).getStartTime());
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package service;
 
+import exseption.ManagerSaveException;
 import model.Epic;
 import model.Subtask;
 import model.Task;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import utils.CompactionPolicy;
+import utils.Durability;
+import utils.SnapshotFormat;
 import utils.Status;
 
 import java.io.IOException;
@@ -13,8 +17,18 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
     private Path tempFile;
@@ -29,6 +43,14 @@ class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
     @AfterEach
     void tearDown() throws Exception {
         Files.deleteIfExists(tempFile);
+        Path segments = segmentsPath();
+        if (Files.exists(segments)) {
+            try (Stream<Path> files = Files.walk(segments)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
     }
 
     @Test
@@ -41,11 +63,11 @@ class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
         taskManager.createEpic(epic);
         taskManager.createSubtask(new Subtask("Subtask 1", "Subtask Description 1", epic.getId(), Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 11, 0)));
 
-        String expectedContent = "id,type,name,status,description,epic\n" +
-                "1,TASK,Task 1,NEW,Description 1,\n" +
-                "2,TASK,Task 2,NEW,Description 2,\n" +
-                "3,EPIC,Epic 1,NEW,Epic Description 1,\n" +
-                "4,SUBTASK,Subtask 1,NEW,Subtask Description 1,3";
+        String expectedContent = "id,type,name,status,description,epic,duration,startTime\n" +
+                "1,TASK,Task 1,NEW,Description 1,,60,2025-02-01T09:00\n" +
+                "2,TASK,Task 2,NEW,Description 2,,60,2025-02-01T10:00\n" +
+                "3,EPIC,Epic 1,NEW,Epic Description 1,,60,2025-02-01T11:00\n" +
+                "4,SUBTASK,Subtask 1,NEW,Subtask Description 1,3,60,2025-02-01T11:00";
 
         assertEquals(expectedContent.trim(), Files.readString(tempFile).trim());
     }
@@ -90,4 +112,422 @@ class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
         assertEquals(2, taskManager.getAllSubtasks().size());
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Повторная загрузка сохраненного файла")
+    void reloadRestoresTasks() {
+        taskManager.createTask(new Task("Task1", "Description1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 9, 0)));
+        Epic epic = taskManager.createEpic(new Epic("Epic1", "Description Epic1"));
+        taskManager.createSubtask(new Subtask("Subtask1", "Description Subtask1", epic.getId(), Status.DONE, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 10, 0)));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+
+        assertEquals(taskManager.getAllTasks(), loaded.getAllTasks());
+        assertEquals(taskManager.getAllSubtasks(), loaded.getAllSubtasks());
+        assertEquals(Status.DONE, loaded.getEpicById(epic.getId()).getStatus());
+        assertEquals(2, loaded.getPrioritizedTasks().size());
+        assertEquals(4, loaded.createTask(new Task("Task2", "Description2", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 12, 0))).getId());
+    }
+
+    @Test
+    @DisplayName("Журнал изменений восстанавливается поверх снимка")
+    void journalReplaysOverSnapshot() throws IOException {
+        Path journal = tempFile.resolveSibling(tempFile.getFileName() + ".journal");
+        try {
+            FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, true);
+            Task task = journaled.createTask(new Task("Task1", "Description1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 9, 0)));
+            Epic epic = journaled.createEpic(new Epic("Epic1", "Description Epic1"));
+            journaled.checkpoint();
+
+            Subtask subtask = journaled.createSubtask(new Subtask("Subtask1", "Description Subtask1", epic.getId(), Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 10, 0)));
+            subtask.setStatus(Status.IN_PROGRESS);
+            journaled.updateSubtask(subtask);
+            journaled.deleteTask(task.getId());
+            assertEquals(3, Files.readAllLines(journal).size());
+
+            FileBackedTaskManager loaded = new FileBackedTaskManager(tempFile, true);
+
+            assertEquals(0, loaded.getAllTasks().size());
+            assertEquals(1, loaded.getAllSubtasks().size());
+            assertEquals(Status.IN_PROGRESS, loaded.getEpicById(epic.getId()).getStatus());
+            assertEquals(4, loaded.createTask(new Task("Task2", "Description2", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 12, 0))).getId());
+        } finally {
+            Files.deleteIfExists(journal);
+        }
+    }
+
+    @Test
+    @DisplayName("Запятые, переводы строк и обратная косая черта в названии переживают снимок и журнал")
+    void separatorsInTextRoundTrip() throws IOException {
+        Path journal = tempFile.resolveSibling(tempFile.getFileName() + ".journal");
+        try {
+            Task task = taskManager.createTask(new Task("Buy milk, eggs", "line1\nline2\r\\c", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 9, 0)));
+            assertEquals(List.of(task), FileBackedTaskManager.loadFromFile(tempFile).getAllTasks());
+
+            FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, true);
+            Epic epic = journaled.createEpic(new Epic("Epic, 1", "a,b,c"));
+            Subtask subtask = journaled.createSubtask(new Subtask("Sub\\task, 1", ",", epic.getId(), Status.DONE, Duration.ZERO, null));
+
+            FileBackedTaskManager loaded = new FileBackedTaskManager(tempFile, true);
+
+            assertEquals(List.of(task), loaded.getAllTasks());
+            assertEquals("Epic, 1", loaded.getEpicById(epic.getId()).getName());
+            assertEquals("a,b,c", loaded.getEpicById(epic.getId()).getDescription());
+            assertEquals(List.of(subtask), loaded.getAllSubtasks());
+        } finally {
+            Files.deleteIfExists(journal);
+        }
+    }
+
+    @Test
+    @DisplayName("Фоновая запись сохраняет накопленные изменения при flush()")
+    void backgroundFlusherWritesOnFlush() throws IOException {
+        try (FileBackedTaskManager buffered = new FileBackedTaskManager(tempFile, false, Durability.BATCH, 60_000, 1_000)) {
+            buffered.createTask(new Task("Task1", "Description1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 9, 0)));
+            buffered.createTask(new Task("Task2", "Description2", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 10, 0)));
+            assertEquals("", Files.readString(tempFile));
+
+            buffered.flush();
+
+            assertEquals(2, FileBackedTaskManager.loadFromFile(tempFile).getAllTasks().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Фоновая запись повторяется после ошибки, а операции не получают чужое исключение")
+    void backgroundFlusherRetriesAfterFailure() throws Exception {
+        Path journal = tempFile.resolveSibling(tempFile.getFileName() + ".journal");
+        try (FileBackedTaskManager buffered = new FileBackedTaskManager(tempFile, true, Durability.BATCH, 10, 1)) {
+            Files.createDirectory(journal);
+            buffered.createTask(new Task("Task1", "Description1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 9, 0)));
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (buffered.getFlushFailure() == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(buffered.getFlushFailure() != null);
+            buffered.createTask(new Task("Task2", "Description2", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 10, 0)));
+
+            Files.delete(journal);
+            while (buffered.getFlushFailure() != null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(null, buffered.getFlushFailure());
+            assertEquals(2, Files.readAllLines(journal).size());
+        } finally {
+            Files.deleteIfExists(journal);
+        }
+    }
+
+    @Test
+    @DisplayName("После неудачной явной записи фоновый поток повторяет ее сам")
+    void backgroundFlusherRetriesFailedExplicitFlush() throws Exception {
+        Path journal = tempFile.resolveSibling(tempFile.getFileName() + ".journal");
+        try (FileBackedTaskManager buffered = new FileBackedTaskManager(tempFile, true, Durability.BATCH, 60_000, 1000)) {
+            buffered.createTask(new Task("Task1", "Description1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 9, 0)));
+            Files.createDirectory(journal);
+            assertThrows(ManagerSaveException.class, buffered::flush);
+            assertNotNull(buffered.getFlushFailure(), "Ошибка явной записи должна быть видна");
+
+            Files.delete(journal);
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (buffered.getFlushFailure() != null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(null, buffered.getFlushFailure());
+            assertEquals(1, Files.readAllLines(journal).size());
+        } finally {
+            Files.deleteIfExists(journal);
+        }
+    }
+
+    @Test
+    @DisplayName("Параллельная загрузка сохраняет порядок строк и связи подзадач с эпиками")
+    void parallelLoadKeepsOrderAcrossChunks() throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(new Task("Task" + i, "Description" + i, Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 0, 0).plusHours(i)));
+        }
+        taskManager.createAll(tasks);
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            epics.add(taskManager.createEpic(new Epic("Epic" + i, "Description Epic" + i)));
+        }
+        for (int i = 0; i < 10; i++) {
+            taskManager.createSubtask(new Subtask("Subtask" + i, "Description Subtask" + i, epics.get(i % 5).getId(), i % 2 == 0 ? Status.DONE : Status.IN_PROGRESS, Duration.ZERO, null));
+        }
+
+        FileBackedTaskManager loaded = new FileBackedTaskManager(tempFile, 0, 3);
+
+        assertEquals(taskManager.getAllTasks(), loaded.getAllTasks());
+        assertEquals(taskManager.getAllSubtasks(), loaded.getAllSubtasks());
+        for (Epic epic : epics) {
+            assertEquals(taskManager.getEpicById(epic.getId()).getSubtasks(), loaded.getEpicById(epic.getId()).getSubtasks());
+            assertEquals(taskManager.getEpicById(epic.getId()).getStatus(), loaded.getEpicById(epic.getId()).getStatus());
+        }
+        assertEquals(taskManager.getPrioritizedTasks(), loaded.getPrioritizedTasks());
+        assertEquals(36, loaded.createTask(new Task("Task", "Description", Status.NEW, Duration.ZERO, null)).getId());
+    }
+
+    @Test
+    @DisplayName("Бинарный снимок сохраняет запятые и время задач")
+    void binarySnapshotRoundTrip() {
+        FileBackedTaskManager binary = new FileBackedTaskManager(tempFile, false, SnapshotFormat.BINARY, Durability.NONE, 0, 0);
+        binary.createTask(new Task("Купить, собрать", "Мебель, кухня", Status.IN_PROGRESS, Duration.ofMinutes(90), LocalDateTime.of(2025, 02, 1, 9, 0)));
+        Epic epic = binary.createEpic(new Epic("Epic1", null));
+        binary.createSubtask(new Subtask("Subtask1", "Description Subtask1", epic.getId(), Status.DONE, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 11, 0)));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+
+        assertEquals(binary.getAllTasks(), loaded.getAllTasks());
+        assertEquals(binary.getAllSubtasks(), loaded.getAllSubtasks());
+        assertEquals(binary.getAllEpics(), loaded.getAllEpics());
+        assertEquals(4, loaded.createEpic(new Epic("Epic2", "Description Epic2")).getId());
+    }
+
+    @Test
+    @DisplayName("Бинарный снимок сохраняет секунды и наносекунды времени")
+    void binarySnapshotKeepsSeconds() {
+        FileBackedTaskManager binary = new FileBackedTaskManager(tempFile, false, SnapshotFormat.BINARY, Durability.NONE, 0, 0);
+        Task task = binary.createTask(new Task("Task1", "Description1", Status.NEW, Duration.ofSeconds(90, 500), LocalDateTime.of(2025, 02, 1, 9, 0, 30, 1_000)));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+
+        assertEquals(task.getStartTime(), loaded.getTaskById(task.getId()).getStartTime());
+        assertEquals(task.getDuration(), loaded.getTaskById(task.getId()).getDuration());
+    }
+
+    @Test
+    @DisplayName("Пакетное создание сохраняет файл один раз")
+    void createAllSavesOnce() {
+        AtomicInteger saves = new AtomicInteger();
+        taskManager.setSaveListener((bytes, durationNanos) -> saves.incrementAndGet());
+
+        taskManager.createAll(List.of(
+                new Task("Task1", "Description1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 9, 0)),
+                new Task("Task2", "Description2", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 10, 0)),
+                new Task("Task3", "Description3", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 11, 0))));
+
+        assertEquals(1, saves.get());
+        assertEquals(3, FileBackedTaskManager.loadFromFile(tempFile).getAllTasks().size());
+    }
+
+    @Test
+    @DisplayName("Пакетное обновление с обменом слотами восстанавливается из журнала")
+    void journalReplaysUpdateAll() throws IOException {
+        Path journal = tempFile.resolveSibling(tempFile.getFileName() + ".journal");
+        try {
+            FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, true);
+            Epic epic = journaled.createEpic(new Epic("Epic1", "Description Epic1"));
+            Task task = journaled.createTask(new Task("Task1", "Description1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 9, 0)));
+            Subtask subtask = journaled.createSubtask(new Subtask("Subtask1", "Description Subtask1", epic.getId(), Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 10, 0)));
+
+            Task movedTask = new Task("Task1", "Description1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 10, 0));
+            movedTask.setId(task.getId());
+            Subtask movedSubtask = new Subtask("Subtask1", "Description Subtask1", epic.getId(), Status.DONE, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 9, 0));
+            movedSubtask.setId(subtask.getId());
+            journaled.updateAll(List.of(movedTask, movedSubtask));
+
+            FileBackedTaskManager loaded = new FileBackedTaskManager(tempFile, true);
+
+            assertEquals(List.of(movedSubtask, movedTask), loaded.getPrioritizedTasks());
+            assertEquals(Status.DONE, loaded.getEpicById(epic.getId()).getStatus());
+        } finally {
+            Files.deleteIfExists(journal);
+        }
+    }
+
+    @Test
+    @DisplayName("Сегментированный снимок восстанавливает доску из нескольких сегментов")
+    void segmentedRoundTrip() {
+        FileBackedTaskManager segmented = segmentedManager();
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            tasks.add(new Task("Task" + i, "Description" + i, Status.NEW, Duration.ZERO, null));
+        }
+        segmented.createAll(tasks);
+        Epic epic = segmented.createEpic(new Epic("Epic1", "Description Epic1"));
+        segmented.createSubtask(new Subtask("Subtask1", "Description Subtask1", epic.getId(), Status.DONE, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 11, 0)));
+
+        assertTrue(Files.exists(segmentsPath().resolve("segment-0.csv")));
+        assertTrue(Files.exists(segmentsPath().resolve("segment-1.csv")));
+        FileBackedTaskManager loaded = segmentedManager();
+
+        assertEquals(segmented.getAllTasks(), loaded.getAllTasks());
+        assertEquals(segmented.getAllSubtasks(), loaded.getAllSubtasks());
+        assertEquals(Status.DONE, loaded.getEpicById(epic.getId()).getStatus());
+        assertEquals(1503, loaded.createTask(new Task("Task", "Description", Status.NEW, null, null)).getId());
+    }
+
+    @Test
+    @DisplayName("Изменение переписывает только свой сегмент")
+    void segmentedSaveRewritesOnlyChangedSegment() throws IOException {
+        FileBackedTaskManager segmented = segmentedManager();
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            tasks.add(new Task("Task" + i, "Description" + i, Status.NEW, Duration.ZERO, null));
+        }
+        segmented.createAll(tasks);
+        AtomicLong written = new AtomicLong();
+        segmented.setSaveListener((bytes, durationNanos) -> written.addAndGet(bytes));
+
+        Task updated = new Task("Task updated", "Description", Status.DONE, Duration.ZERO, null);
+        updated.setId(2000);
+        segmented.updateTask(updated);
+
+        assertEquals(Files.size(segmentsPath().resolve("segment-1.csv")), written.get());
+        assertEquals(Status.DONE, segmentedManager().getTaskById(2000).getStatus());
+    }
+
+    @Test
+    @DisplayName("Удаление эпика и очистка доски удаляют записи из всех сегментов")
+    void segmentedDeletes() {
+        FileBackedTaskManager segmented = segmentedManager();
+        Epic epic = segmented.createEpic(new Epic("Epic1", "Description Epic1"));
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 1100; i++) {
+            tasks.add(new Task("Task" + i, "Description" + i, Status.NEW, Duration.ZERO, null));
+        }
+        segmented.createAll(tasks);
+        Subtask subtask = segmented.createSubtask(new Subtask("Subtask1", "Description Subtask1", epic.getId(), Status.NEW, Duration.ZERO, null));
+
+        segmented.deleteEpic(epic.getId());
+        FileBackedTaskManager loaded = segmentedManager();
+        assertEquals(null, loaded.getSubtaskById(subtask.getId()));
+        assertEquals(1100, loaded.getAllTasks().size());
+
+        segmented.deleteAll();
+        assertFalse(Files.exists(segmentsPath().resolve("segment-0.csv")));
+        assertFalse(Files.exists(segmentsPath().resolve("segment-1.csv")));
+        assertTrue(segmentedManager().getAllTasks().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Компактизация переносит журнал в снимок и очищает его")
+    void compactFoldsJournalIntoSnapshot() throws IOException {
+        Path journal = tempFile.resolveSibling(tempFile.getFileName() + ".journal");
+        Path oldJournal = tempFile.resolveSibling(tempFile.getFileName() + ".journal.old");
+        try (FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, true)) {
+            Task task = journaled.createTask(new Task("Task1", "Description1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 9, 0)));
+            Epic epic = journaled.createEpic(new Epic("Epic1", "Description Epic1"));
+            journaled.createSubtask(new Subtask("Subtask1", "Description Subtask1", epic.getId(), Status.DONE, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 10, 0)));
+
+            journaled.compact();
+
+            assertFalse(Files.exists(journal));
+            assertFalse(Files.exists(oldJournal));
+            assertEquals(4, Files.readAllLines(tempFile).size());
+
+            journaled.deleteTask(task.getId());
+            assertEquals(1, Files.readAllLines(journal).size());
+
+            FileBackedTaskManager loaded = new FileBackedTaskManager(tempFile, true);
+            assertEquals(0, loaded.getAllTasks().size());
+            assertEquals(1, loaded.getAllSubtasks().size());
+            assertEquals(Status.DONE, loaded.getEpicById(epic.getId()).getStatus());
+        } finally {
+            Files.deleteIfExists(journal);
+            Files.deleteIfExists(oldJournal);
+        }
+    }
+
+    @Test
+    @DisplayName("Старый журнал прерванной компактизации повторно применяется поверх нового снимка")
+    void oldJournalReplaysOverNewerSnapshot() throws IOException {
+        Path journal = tempFile.resolveSibling(tempFile.getFileName() + ".journal");
+        Path oldJournal = tempFile.resolveSibling(tempFile.getFileName() + ".journal.old");
+        try {
+            FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, true);
+            Epic epic = journaled.createEpic(new Epic("Epic1", "Description Epic1"));
+            Task task = journaled.createTask(new Task("Task1", "Description1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 9, 0)));
+            Task movedTask = new Task("Task1", "Description1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 10, 0));
+            movedTask.setId(task.getId());
+            journaled.updateTask(movedTask);
+            Subtask subtask = journaled.createSubtask(new Subtask("Subtask1", "Description Subtask1", epic.getId(), Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 9, 0)));
+            Epic removedEpic = journaled.createEpic(new Epic("Epic2", "Description Epic2"));
+            journaled.createSubtask(new Subtask("Subtask2", "Description Subtask2", removedEpic.getId(), Status.NEW, Duration.ZERO, null));
+            journaled.deleteEpic(removedEpic.getId());
+            Path backup = tempFile.resolveSibling(tempFile.getFileName() + ".backup");
+            Files.copy(journal, backup);
+            journaled.compact();
+            Files.move(backup, oldJournal);
+            journaled.createTask(new Task("Task2", "Description2", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 11, 0)));
+
+            FileBackedTaskManager loaded = new FileBackedTaskManager(tempFile, true);
+
+            assertEquals(journaled.getAllTasks(), loaded.getAllTasks());
+            assertEquals(List.of(subtask), loaded.getAllSubtasks());
+            assertEquals(List.of(subtask, movedTask), loaded.getPrioritizedTasks().subList(0, 2));
+            assertEquals(7, loaded.createTask(new Task("Task3", "Description3", Status.NEW, Duration.ZERO, null)).getId());
+        } finally {
+            Files.deleteIfExists(journal);
+            Files.deleteIfExists(oldJournal);
+        }
+    }
+
+    @Test
+    @DisplayName("Фоновая компактизация запускается по числу операций в журнале")
+    void backgroundCompactionByOperationCount() throws Exception {
+        Path journal = tempFile.resolveSibling(tempFile.getFileName() + ".journal");
+        Path oldJournal = tempFile.resolveSibling(tempFile.getFileName() + ".journal.old");
+        try (FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, true)) {
+            assertThrows(IllegalArgumentException.class, () -> new CompactionPolicy(0, 0, 0, 1024));
+            journaled.startCompaction(new CompactionPolicy(0, 10, 0, 1024 * 1024));
+            for (int i = 0; i < 10; i++) {
+                journaled.createTask(new Task("Task" + i, "Description" + i, Status.NEW, Duration.ZERO, null));
+            }
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while ((Files.exists(journal) || Files.exists(oldJournal)) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+
+            assertFalse(Files.exists(journal));
+            assertFalse(Files.exists(oldJournal));
+            assertEquals(10, FileBackedTaskManager.loadFromFile(tempFile).getAllTasks().size());
+        } finally {
+            Files.deleteIfExists(journal);
+            Files.deleteIfExists(oldJournal);
+        }
+    }
+
+    @Test
+    @DisplayName("Закрытие прерывает медленную фоновую компактизацию, а ошибка доступна менеджеру")
+    void closeInterruptsThrottledCompaction() throws Exception {
+        Path journal = tempFile.resolveSibling(tempFile.getFileName() + ".journal");
+        Path oldJournal = tempFile.resolveSibling(tempFile.getFileName() + ".journal.old");
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, true);
+        try {
+            List<Task> tasks = new ArrayList<>();
+            for (int i = 0; i < 3000; i++) {
+                tasks.add(new Task("Task" + i, "Description" + i, Status.NEW, Duration.ZERO, null));
+            }
+            journaled.createAll(tasks);
+            journaled.startCompaction(new CompactionPolicy(0, 1, 0, 1024));
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (!Files.exists(oldJournal) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(Files.exists(oldJournal), "Компактизация должна начать запись снимка");
+
+            long start = System.nanoTime();
+            journaled.close();
+            assertTrue(System.nanoTime() - start < 5_000_000_000L, "close() не должен ждать записи снимка");
+            assertNotNull(journaled.getCompactionFailure(), "Прерванная компактизация должна быть видна");
+            assertEquals(3000, new FileBackedTaskManager(tempFile, true).getAllTasks().size());
+        } finally {
+            journaled.close();
+            Files.deleteIfExists(journal);
+            Files.deleteIfExists(oldJournal);
+        }
+    }
+
+    private FileBackedTaskManager segmentedManager() {
+        return new FileBackedTaskManager(tempFile, false, SnapshotFormat.SEGMENTED, Durability.NONE, 0, 0);
+    }
+
+    private Path segmentsPath() {
+        return tempFile.resolveSibling(tempFile.getFileName() + ".segments");
+    }
+}
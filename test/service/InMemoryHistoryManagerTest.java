@@ -159,4 +159,53 @@ class InMemoryHistoryManagerTest {
         assertTrue(historyManager.getHistory().size() == 1);
         assertTrue(historyManager.getHistory().contains(task1));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Вытеснение самых старых записей при превышении емкости")
+    void boundedHistory_EvictsOldestEntries() {
+        historyManager = new InMemoryHistoryManager(2);
+        Task task1 = new Task("Task 1", "Description 1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 0));
+        Task task2 = new Task("Task 2", "Description 2", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 2, 9, 0));
+        Task task3 = new Task("Task 3", "Description 3", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 3, 9, 0));
+        task1.setId(1);
+        task2.setId(2);
+        task3.setId(3);
+
+        historyManager.add(task1);
+        historyManager.add(task2);
+        historyManager.add(task1);
+        historyManager.add(task3);
+
+        assertEquals(List.of(task1, task3), historyManager.getHistory());
+    }
+
+    @Test
+    @DisplayName("История по id не удерживает удаленные задачи")
+    void idOnlyHistory_ResolvesTasksOnRead() {
+        InMemoryTaskManager taskManager = new InMemoryTaskManager(10, 1024 * 1024, true);
+        Task task1 = taskManager.createTask(new Task("Task 1", "Description 1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 0)));
+        Task task2 = taskManager.createTask(new Task("Task 2", "Description 2", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 2, 9, 0)));
+        taskManager.getTaskById(task1.getId());
+        taskManager.getTaskById(task2.getId());
+
+        taskManager.deleteTask(task1.getId());
+
+        assertEquals(List.of(task2), taskManager.getHistory());
+    }
+
+    @Test
+    @DisplayName("Лимит по памяти считается по оценке размера задачи из model.Task")
+    void byteBoundedHistory_UsesTaskLayoutEstimate() {
+        // Узел с задачей без строк: узел 40 + ячейка 8 + сама задача
+        long entryBytes = 40 + 8 + Task.ESTIMATED_BYTES;
+        historyManager = new InMemoryHistoryManager(100, entryBytes * 10, null);
+        for (int i = 1; i <= 20; i++) {
+            Task task = new Task(null, null, Status.NEW, null, null);
+            task.setId(i);
+            historyManager.add(task);
+        }
+
+        assertEquals(10, historyManager.getHistory().size());
+        assertEquals(11, historyManager.getHistory().get(0).getId());
+    }
+}
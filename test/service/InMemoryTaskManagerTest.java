@@ -9,7 +9,7 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
 
@@ -37,4 +37,30 @@ class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
         assertEquals(task1, prioritizedTasks.get(1), "Вторая задача должна быть Task 1");
         assertEquals(task3, prioritizedTasks.get(2), "Третья задача должна быть Task 3");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Пересечение по времени проверяется только с соседними задачами")
+    void testCheckForTimeIntersection() {
+        taskManager.createTask(new Task("Task 1", "Description 1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 9, 0)));
+        taskManager.createTask(new Task("Task 2", "Description 2", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 11, 0)));
+
+        assertTrue(taskManager.checkForTimeIntersection(new Task("Task 3", "Description 3", Status.NEW, Duration.ofMinutes(30), LocalDateTime.of(2025, 02, 1, 9, 45))));
+        assertTrue(taskManager.checkForTimeIntersection(new Task("Task 3", "Description 3", Status.NEW, Duration.ofHours(3), LocalDateTime.of(2025, 02, 1, 8, 0))));
+        assertFalse(taskManager.checkForTimeIntersection(new Task("Task 3", "Description 3", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 10, 0))));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.createTask(new Task("Task 3", "Description 3", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 10, 30))));
+    }
+
+    @Test
+    @DisplayName("Обновляемая задача не пересекается сама с собой")
+    void testUpdateTaskExcludesItselfFromIntersection() {
+        Task task1 = taskManager.createTask(new Task("Task 1", "Description 1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 9, 0)));
+        taskManager.createTask(new Task("Task 2", "Description 2", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 10, 0)));
+
+        Task moved = new Task("Task 1", "Description 1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 02, 1, 8, 30));
+        moved.setId(task1.getId());
+        taskManager.updateTask(moved);
+
+        assertEquals(LocalDateTime.of(2025, 02, 1, 8, 30), taskManager.getPrioritizedTasks().get(0).getStartTime());
+        assertEquals(2, taskManager.getPrioritizedTasks().size());
+    }
+}
@@ -0,0 +1,114 @@
+package service;
+
+import model.Task;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import utils.Managers;
+import utils.Status;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstrumentedTaskManagerTest extends TaskManagerTest<InstrumentedTaskManager> {
+
+    @Override
+    protected InstrumentedTaskManager createTaskManager() {
+        return Managers.getInstrumented(new InMemoryTaskManager());
+    }
+
+    @Test
+    @DisplayName("Вызовы и ошибки считаются по каждому методу")
+    void testCountsCallsAndErrors() {
+        Task task = taskManager.createTask(new Task("Task 1", "Description 1", Status.NEW,
+                Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 0)));
+        taskManager.getTaskById(task.getId());
+        taskManager.getTaskById(task.getId());
+        Task overlapping = new Task("Task 2", "Description 2", Status.NEW,
+                Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 30));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.createTask(overlapping));
+
+        InstrumentedTaskManager.OperationStats create = taskManager.getStats(InstrumentedTaskManager.Operation.CREATE_TASK);
+        InstrumentedTaskManager.OperationStats get = taskManager.getStats(InstrumentedTaskManager.Operation.GET_TASK_BY_ID);
+        assertEquals(2, create.getCalls(), "Оба вызова создания должны быть учтены");
+        assertEquals(1, create.getErrors(), "Ошибочный вызов должен быть учтен");
+        assertEquals(2, get.getCalls());
+        assertEquals(0, get.getErrors());
+        assertTrue(get.getLatency().getMax() > 0, "Задержка должна быть записана");
+    }
+
+    @Test
+    @DisplayName("Размеры структур менеджера доступны как метрики")
+    void testGauges() {
+        Task task = taskManager.createTask(new Task("Task 1", "Description 1", Status.NEW,
+                Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 0)));
+        taskManager.createTask(new Task("Task 2", "Description 2", Status.NEW, null, null));
+        taskManager.getTaskById(task.getId());
+
+        Map<String, Long> gauges = taskManager.getGauges();
+        assertEquals(2L, gauges.get("tasks"));
+        assertEquals(0L, gauges.get("epics"));
+        assertEquals(1L, gauges.get("prioritized"), "В приоритизированный список попадает только задача со временем");
+        assertEquals(1L, gauges.get("history"));
+    }
+
+    @Test
+    @DisplayName("Сохранения файлового менеджера учитываются с размером и временем")
+    void testSaveMetrics() throws Exception {
+        File file = File.createTempFile("instrumented", ".csv");
+        try (InstrumentedTaskManager manager = Managers.getInstrumented(new FileBackedTaskManager(file.toPath()))) {
+            manager.createTask(new Task("Task 1", "Description 1", Status.NEW, null, null));
+            manager.createTask(new Task("Task 2", "Description 2", Status.NEW, null, null));
+
+            assertEquals(2, manager.getSaveDurations().getCount(), "Каждое изменение должно сохраняться");
+            assertEquals(file.length(), manager.getLastSaveBytes(), "Размер последнего сохранения должен совпадать с файлом");
+            assertEquals(2L, manager.getGauges().get("saves"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    @DisplayName("Отчет с метриками выгружается периодически")
+    void testPeriodicDump() throws InterruptedException {
+        taskManager.getAllTasks();
+        CountDownLatch dumped = new CountDownLatch(1);
+        String[] report = new String[1];
+        taskManager.startPeriodicDump(Duration.ofMillis(10), text -> {
+            report[0] = text;
+            dumped.countDown();
+        });
+        try {
+            assertTrue(dumped.await(5, TimeUnit.SECONDS), "Отчет должен быть выгружен");
+        } finally {
+            taskManager.close();
+        }
+        assertTrue(report[0].contains("GET_ALL_TASKS,1,0,"), "Отчет должен содержать строку операции");
+        assertTrue(report[0].contains("gauge.tasks,0"));
+    }
+
+    @Test
+    @DisplayName("Размеры однопоточного менеджера снимает поток-владелец по запросу выгрузки")
+    void testPeriodicDumpGaugesFromOwnerThread() throws InterruptedException {
+        CountDownLatch requested = new CountDownLatch(1);
+        CountDownLatch updated = new CountDownLatch(1);
+        taskManager.startPeriodicDump(Duration.ofMillis(10), text -> {
+            requested.countDown();
+            if (text.contains("gauge.tasks,1")) {
+                updated.countDown();
+            }
+        });
+        try {
+            assertTrue(requested.await(5, TimeUnit.SECONDS), "Отчет должен быть выгружен");
+            taskManager.createTask(new Task("Task 1", "Description 1", Status.NEW, null, null));
+            assertTrue(updated.await(5, TimeUnit.SECONDS), "Размеры должны обновиться после вызова владельца");
+        } finally {
+            taskManager.close();
+        }
+    }
+}
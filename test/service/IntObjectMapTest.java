@@ -0,0 +1,122 @@
+package service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntObjectMapTest {
+    private IntObjectMap<String> map;
+
+    @BeforeEach
+    void setUp() {
+        map = new IntObjectMap<>();
+    }
+
+    @Test
+    @DisplayName("Значения хранятся и обходятся в порядке id")
+    void putGetAndIterateInKeyOrder() {
+        for (int id = 100; id >= 1; id--) {
+            map.put(id, "value " + id);
+        }
+
+        assertEquals(100, map.size());
+        assertEquals("value 42", map.get(42));
+        assertEquals("value 1", map.values().iterator().next());
+        assertNull(map.get(101));
+    }
+
+    @Test
+    @DisplayName("Удаление и замена значений")
+    void removeAndReplace() {
+        map.put(1, "a");
+        map.put(2, "b");
+
+        assertEquals("a", map.put(1, "c"));
+        assertEquals("b", map.remove(2));
+        assertNull(map.remove(2));
+        assertEquals(List.of("c"), List.copyOf(map.values()));
+        assertFalse(map.containsKey(2));
+    }
+
+    @Test
+    @DisplayName("Разреженные и отрицательные ключи")
+    void sparseAndNegativeKeys() {
+        map.put(1_000_000, "far");
+        map.put(-5, "negative");
+        map.put(3, "near");
+
+        assertEquals("far", map.get(1_000_000));
+        assertEquals("negative", map.get(-5));
+        assertEquals(3, map.size());
+
+        for (int id = 4; id < 200_000; id++) {
+            map.put(id, "filler");
+        }
+
+        assertEquals("far", map.get(1_000_000));
+        assertEquals("far", map.remove(1_000_000));
+        assertEquals(200_000 - 4 + 2, map.size());
+    }
+
+    @Test
+    @DisplayName("Страница по ключу учитывает плотную часть и переполнение")
+    void pageAfterKey() {
+        map.put(-5, "negative");
+        for (int id = 1; id <= 10; id++) {
+            map.put(id, "value " + id);
+        }
+        map.remove(4);
+        map.put(1_000_000, "far");
+
+        assertEquals(List.of("negative", "value 1", "value 2"), map.page(Integer.MIN_VALUE, 3));
+        assertEquals(List.of("value 5", "value 6"), map.page(3, 2), "Удаленные ключи пропускаются");
+        assertEquals(List.of("value 10", "far"), map.page(9, 10));
+        assertEquals(List.of(), map.page(1_000_000, 10));
+    }
+
+    @Test
+    @DisplayName("Параллельный поток обходит все значения")
+    void parallelStream() {
+        for (int id = 1; id <= 100_000; id++) {
+            map.put(id, String.valueOf(id));
+        }
+        map.put(-1, "negative");
+
+        assertEquals(100_001, map.stream().parallel().count());
+        assertEquals(List.of("negative", "1", "2"), map.stream().limit(3).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("Обход идет по возрастанию ключа и с ключами вне массива")
+    void iterationKeepsKeyOrderWithOverflow() {
+        map.put(1_000_000, "far");
+        map.put(2, "two");
+        map.put(-5, "minus five");
+        map.put(-7, "minus seven");
+
+        assertEquals(List.of("minus seven", "minus five", "two", "far"), new ArrayList<>(map.values()));
+        assertEquals(List.of("minus seven", "minus five", "two", "far"), map.stream().collect(Collectors.toList()));
+        assertEquals(List.of("two", "far"), map.page(-5, 10));
+    }
+
+    @Test
+    @DisplayName("Изменение набора ключей во время обхода обнаруживается итератором")
+    void iteratorFailsFast() {
+        map.put(1, "a");
+        map.put(2, "b");
+        Iterator<String> iterator = map.values().iterator();
+        assertTrue(iterator.hasNext());
+
+        map.remove(1);
+
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+    }
+}
@@ -0,0 +1,46 @@
+package service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("Процентили считаются с относительной погрешностью не больше 1/64")
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMax());
+        assertEquals(5_000_500, histogram.getMean(), 1);
+        assertEquals(5_000_000, histogram.getValueAtPercentile(50), 5_000_000 / 64.0);
+        assertEquals(9_900_000, histogram.getValueAtPercentile(99), 9_900_000 / 64.0);
+        assertEquals(10_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    @DisplayName("Каждое значение попадает в корзину, верхняя граница которой не меньше значения")
+    void testBucketBounds() {
+        for (long value = 0; value < 1 << 20; value += 7) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.highestValueAt(index) >= value);
+            assertTrue(index == 0 || LatencyHistogram.highestValueAt(index - 1) < value);
+        }
+    }
+
+    @Test
+    @DisplayName("Пустая гистограмма и сброс")
+    void testEmptyAndReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        histogram.record(42);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+}
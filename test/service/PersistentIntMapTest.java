@@ -0,0 +1,65 @@
+package service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentIntMapTest {
+
+    @Test
+    @DisplayName("Изменение создает новую версию, старая остается прежней")
+    void putAndRemoveKeepPreviousVersion() {
+        PersistentIntMap<String> first = PersistentIntMap.<String>empty().put(1, "a").put(2, "b");
+        PersistentIntMap<String> second = first.put(1, "c").remove(2);
+
+        assertEquals("a", first.get(1));
+        assertEquals("b", first.get(2));
+        assertEquals(2, first.size());
+        assertEquals("c", second.get(1));
+        assertNull(second.get(2));
+        assertEquals(1, second.size());
+    }
+
+    @Test
+    @DisplayName("Значения обходятся по возрастанию ключа, в том числе для больших ключей")
+    void valuesInKeyOrder() {
+        PersistentIntMap<String> map = PersistentIntMap.empty();
+        for (int key : new int[]{Integer.MAX_VALUE, 5, 100_000, 0, 33}) {
+            map = map.put(key, "value " + key);
+        }
+
+        assertEquals(List.of("value 0", "value 5", "value 33", "value 100000", "value " + Integer.MAX_VALUE),
+                map.values());
+        assertEquals("value " + Integer.MAX_VALUE, map.get(Integer.MAX_VALUE));
+        assertNull(map.get(6));
+    }
+
+    @Test
+    @DisplayName("Удаление всех ключей дает пустое отображение")
+    void removeAll() {
+        PersistentIntMap<Integer> map = PersistentIntMap.empty();
+        for (int key = 0; key < 2000; key++) {
+            map = map.put(key, key);
+        }
+        for (int key = 0; key < 2000; key++) {
+            map = map.remove(key);
+        }
+
+        assertTrue(map.isEmpty());
+        assertTrue(map.values().isEmpty());
+        assertSame(map, map.remove(7));
+    }
+
+    @Test
+    @DisplayName("Отрицательные ключи и null-значения отклоняются")
+    void rejectsInvalidArguments() {
+        PersistentIntMap<String> map = PersistentIntMap.empty();
+
+        assertThrows(IllegalArgumentException.class, () -> map.put(-1, "a"));
+        assertThrows(IllegalArgumentException.class, () -> map.put(1, null));
+        assertNull(map.get(-1));
+    }
+}
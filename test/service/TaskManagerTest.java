@@ -6,10 +6,19 @@ import model.Task;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import utils.Status;
+import utils.TypeTask;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -127,4 +136,440 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals(2, history.size());
         assertEquals(task1.getId(), history.get(0).getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testQueryByStatusAndType() {
+        Task task1 = taskManager.createTask(new Task("model.Task 1", "Description 1", Status.NEW, null, null));
+        Task task2 = taskManager.createTask(new Task("model.Task 2", "Description 2", Status.DONE, null, null));
+        Epic epic = taskManager.createEpic(new Epic("model.Epic 1", "model.Epic Description"));
+        Subtask subtask = taskManager.createSubtask(new Subtask("model.Subtask 1", "model.Subtask Description",
+                epic.getId(), Status.IN_PROGRESS, null, null));
+
+        assertEquals(List.of(task2), taskManager.getByTypeAndStatus(TypeTask.TASK, Status.DONE));
+        assertEquals(List.of(subtask), taskManager.getByTypeAndStatus(TypeTask.SUBTASK, Status.IN_PROGRESS));
+        assertEquals(List.of(epic), taskManager.getByTypeAndStatus(TypeTask.EPIC, Status.IN_PROGRESS),
+                "Статус эпика должен индексироваться по его подзадачам");
+        assertEquals(2, taskManager.getByStatus(Status.IN_PROGRESS).size());
+        assertEquals(List.of(task1), taskManager.getByStatus(Status.NEW));
+        assertEquals(2, taskManager.getByType(TypeTask.TASK).size());
+        assertEquals(List.of(subtask), taskManager.getByType(TypeTask.SUBTASK));
+    }
+
+    @Test
+    void testStatusIndexFollowsUpdatesAndDeletes() {
+        Task task = taskManager.createTask(new Task("model.Task 1", "Description 1", Status.NEW, null, null));
+        Epic epic = taskManager.createEpic(new Epic("model.Epic 1", "model.Epic Description"));
+        Subtask subtask = taskManager.createSubtask(new Subtask("model.Subtask 1", "model.Subtask Description",
+                epic.getId(), Status.NEW, null, null));
+
+        Task updatedTask = new Task("model.Task 1", "Description 1", Status.DONE, null, null);
+        updatedTask.setId(task.getId());
+        taskManager.updateTask(updatedTask);
+        Subtask updatedSubtask = new Subtask("model.Subtask 1", "model.Subtask Description",
+                epic.getId(), Status.DONE, null, null);
+        updatedSubtask.setId(subtask.getId());
+        taskManager.updateSubtask(updatedSubtask);
+
+        assertTrue(taskManager.getByStatus(Status.NEW).isEmpty(), "Старые статусы не должны оставаться в индексе");
+        assertEquals(3, taskManager.getByStatus(Status.DONE).size());
+
+        taskManager.deleteSubtask(subtask.getId());
+        assertEquals(List.of(epic), taskManager.getByTypeAndStatus(TypeTask.EPIC, Status.NEW),
+                "Эпик без подзадач должен вернуться в NEW");
+        taskManager.deleteTask(task.getId());
+        taskManager.deleteEpic(epic.getId());
+        for (Status status : Status.values()) {
+            assertTrue(taskManager.getByStatus(status).isEmpty());
+        }
+    }
+
+    @Test
+    void testStatusIndexAfterDeleteAll() {
+        taskManager.createTask(new Task("model.Task 1", "Description 1", Status.DONE, null, null));
+        Epic epic = taskManager.createEpic(new Epic("model.Epic 1", "model.Epic Description"));
+        taskManager.createSubtask(new Subtask("model.Subtask 1", "model.Subtask Description",
+                epic.getId(), Status.DONE, null, null));
+
+        taskManager.deleteAllSubtasks();
+        assertEquals(List.of(epic), taskManager.getByStatus(Status.NEW));
+        taskManager.deleteAllTasks();
+        assertTrue(taskManager.getByStatus(Status.DONE).isEmpty());
+        taskManager.deleteAll();
+        assertTrue(taskManager.getByStatus(Status.NEW).isEmpty());
+    }
+
+    @Test
+    void testGetTasksBetween() {
+        Task task1 = taskManager.createTask(new Task("model.Task 1", "Description 1", Status.NEW,
+                Duration.ofHours(2), LocalDateTime.of(2025, 2, 1, 23, 0)));
+        Task task2 = taskManager.createTask(new Task("model.Task 2", "Description 2", Status.NEW,
+                Duration.ofHours(1), LocalDateTime.of(2025, 2, 2, 9, 0)));
+        taskManager.createTask(new Task("model.Task 3", "Description 3", Status.NEW,
+                Duration.ofHours(1), LocalDateTime.of(2025, 2, 3, 9, 0)));
+        taskManager.createTask(new Task("model.Task 4", "Description 4", Status.NEW,
+                Duration.ofHours(1), LocalDateTime.of(2025, 1, 31, 9, 0)));
+
+        List<Task> day = List.copyOf(taskManager.getTasksBetween(LocalDateTime.of(2025, 2, 2, 0, 0),
+                LocalDateTime.of(2025, 2, 3, 0, 0)));
+
+        assertEquals(List.of(task1, task2), day, "Задача, начатая накануне и идущая в интервале, тоже должна попасть");
+        assertThrows(IllegalArgumentException.class, () -> taskManager.getTasksBetween(
+                LocalDateTime.of(2025, 2, 3, 0, 0), LocalDateTime.of(2025, 2, 2, 0, 0)));
+    }
+
+    @Test
+    void testGetNextAndPreviousTasks() {
+        for (int hour = 9; hour < 14; hour++) {
+            taskManager.createTask(new Task("model.Task " + hour, "Description", Status.NEW,
+                    Duration.ofMinutes(30), LocalDateTime.of(2025, 2, 1, hour, 0)));
+        }
+
+        List<Integer> next = taskManager.getNextTasks(LocalDateTime.of(2025, 2, 1, 10, 0), 2)
+                .map(task -> task.getStartTime().getHour())
+                .collect(Collectors.toList());
+        List<Integer> previous = taskManager.getPreviousTasks(LocalDateTime.of(2025, 2, 1, 12, 0), 10)
+                .map(task -> task.getStartTime().getHour())
+                .collect(Collectors.toList());
+
+        assertEquals(List.of(11, 12), next, "Задачи должны начинаться строго после указанного времени");
+        assertEquals(List.of(11, 10, 9), previous, "Предыдущие задачи идут от ближайшей к самой ранней");
+    }
+
+    @Test
+    void testFindFreeSlot() {
+        taskManager.createTask(new Task("model.Task 1", "Description 1", Status.NEW,
+                Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 0)));
+        taskManager.createTask(new Task("model.Task 2", "Description 2", Status.NEW,
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 2, 1, 10, 30)));
+        taskManager.createTask(new Task("model.Task 3", "Description 3", Status.NEW,
+                Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 11, 0)));
+
+        assertEquals(Optional.of(LocalDateTime.of(2025, 2, 1, 10, 0)),
+                taskManager.findFreeSlot(LocalDateTime.of(2025, 2, 1, 9, 15), Duration.ofMinutes(30)),
+                "Окно между задачами подходит, если длительность помещается точно");
+        assertEquals(Optional.of(LocalDateTime.of(2025, 2, 1, 12, 0)),
+                taskManager.findFreeSlot(LocalDateTime.of(2025, 2, 1, 9, 15), Duration.ofMinutes(45)),
+                "Слишком короткие промежутки должны пропускаться");
+        assertEquals(Optional.of(LocalDateTime.of(2025, 2, 1, 8, 0)),
+                taskManager.findFreeSlot(LocalDateTime.of(2025, 2, 1, 8, 0), Duration.ofHours(1)));
+
+        LocalDateTime found = taskManager.findFreeSlot(LocalDateTime.of(2025, 2, 1, 9, 15), Duration.ofMinutes(45))
+                .orElseThrow();
+        assertDoesNotThrow(() -> taskManager.createTask(new Task("model.Task 4", "Description 4", Status.NEW,
+                Duration.ofMinutes(45), found)), "Найденное окно должно быть свободно");
+    }
+
+    @Test
+    void testFindFreeSlotInWorkingHours() {
+        taskManager.createTask(new Task("model.Task 1", "Description 1", Status.NEW,
+                Duration.ofHours(8), LocalDateTime.of(2025, 2, 1, 9, 0)));
+        taskManager.createTask(new Task("model.Task 2", "Description 2", Status.NEW,
+                Duration.ofHours(1), LocalDateTime.of(2025, 2, 2, 9, 0)));
+
+        assertEquals(Optional.of(LocalDateTime.of(2025, 2, 2, 10, 0)),
+                taskManager.findFreeSlot(LocalDateTime.of(2025, 2, 1, 8, 0), Duration.ofHours(2),
+                        LocalTime.of(9, 0), LocalTime.of(18, 0)),
+                "Окно должно переноситься на следующий рабочий день");
+        assertEquals(Optional.empty(), taskManager.findFreeSlot(LocalDateTime.of(2025, 2, 1, 8, 0),
+                Duration.ofHours(10), LocalTime.of(9, 0), LocalTime.of(18, 0)),
+                "Задача длиннее рабочего дня не помещается никогда");
+        assertThrows(IllegalArgumentException.class, () -> taskManager.findFreeSlot(LocalDateTime.of(2025, 2, 1, 8, 0),
+                Duration.ofHours(1), LocalTime.of(18, 0), LocalTime.of(9, 0)));
+    }
+
+    @Test
+    void testCreateAll() {
+        Epic epic = taskManager.createEpic(new Epic("model.Epic 1", "model.Epic Description"));
+        List<Task> created = taskManager.createAll(List.of(
+                new Task("model.Task 1", "Description 1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 10, 0)),
+                new Subtask("model.Subtask 1", "Description", epic.getId(), Status.DONE, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 0)),
+                new Subtask("model.Subtask 2", "Description", epic.getId(), Status.DONE, null, null),
+                new Epic("model.Epic 2", "model.Epic Description")));
+
+        assertEquals(4, created.size());
+        assertEquals(List.of(2, 3, 4, 5), created.stream().map(Task::getId).collect(Collectors.toList()));
+        assertEquals(2, taskManager.getSubtaskByEpic(epic.getId()).size());
+        assertEquals(Status.DONE, taskManager.getEpicById(epic.getId()).getStatus());
+        assertEquals(2, taskManager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void testCreateAllIsAllOrNothing() {
+        taskManager.createTask(new Task("model.Task 1", "Description 1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 0)));
+
+        assertThrows(IllegalArgumentException.class, () -> taskManager.createAll(List.of(
+                new Task("model.Task 2", "Description 2", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 12, 0)),
+                new Task("model.Task 3", "Description 3", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 12, 30)))),
+                "Пересечение внутри пакета должно отклонять весь пакет");
+        assertThrows(IllegalArgumentException.class, () -> taskManager.createAll(List.of(
+                new Task("model.Task 2", "Description 2", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 12, 0)),
+                new Task("model.Task 3", "Description 3", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 30)))),
+                "Пересечение с существующей задачей должно отклонять весь пакет");
+        assertThrows(IllegalArgumentException.class, () -> taskManager.createAll(List.of(
+                new Task("model.Task 2", "Description 2", Status.NEW, null, null),
+                new Subtask("model.Subtask 1", "Description", 42, Status.NEW, null, null))));
+
+        assertEquals(1, taskManager.getAllTasks().size(), "Ни одна задача отклоненного пакета не должна создаться");
+        assertEquals(1, taskManager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void testUpdateAllSwapsSlots() {
+        Task task1 = taskManager.createTask(new Task("model.Task 1", "Description 1", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 0)));
+        Task task2 = taskManager.createTask(new Task("model.Task 2", "Description 2", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 10, 0)));
+
+        Task moved1 = new Task("model.Task 1", "Description 1", Status.DONE, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 10, 0));
+        moved1.setId(task1.getId());
+        Task moved2 = new Task("model.Task 2", "Description 2", Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 0));
+        moved2.setId(task2.getId());
+        taskManager.updateAll(List.of(moved1, moved2));
+
+        assertEquals(List.of(moved2, moved1), taskManager.getPrioritizedTasks(), "Задачи пакета могут занять освобожденные слоты друг друга");
+        assertEquals(List.of(moved1), taskManager.getByStatus(Status.DONE));
+
+        Task missing = new Task("model.Task 3", "Description 3", Status.NEW, null, null);
+        missing.setId(42);
+        assertThrows(IllegalArgumentException.class, () -> taskManager.updateAll(List.of(task1, missing)));
+    }
+
+    @Test
+    void testDeleteWhere() {
+        Epic epic1 = taskManager.createEpic(new Epic("model.Epic 1", "model.Epic Description"));
+        Epic epic2 = taskManager.createEpic(new Epic("model.Epic 2", "model.Epic Description"));
+        taskManager.createAll(List.of(
+                new Task("model.Task 1", "Description 1", Status.DONE, null, null),
+                new Task("model.Task 2", "Description 2", Status.NEW, null, null),
+                new Subtask("model.Subtask 1", "Description", epic1.getId(), Status.DONE, null, null),
+                new Subtask("model.Subtask 2", "Description", epic1.getId(), Status.IN_PROGRESS, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 0)),
+                new Subtask("model.Subtask 3", "Description", epic2.getId(), Status.NEW, null, null)));
+
+        List<Task> removed = taskManager.deleteWhere(task -> task instanceof Subtask && task.getStatus() == Status.IN_PROGRESS
+                || task.getName().equals("model.Epic 2") || task.getName().equals("model.Task 1"));
+
+        assertEquals(4, removed.size(), "Удаляются совпавшие задачи и подзадачи удаленного эпика");
+        assertEquals(List.of(epic1), taskManager.getAllEpics());
+        assertEquals(1, taskManager.getAllTasks().size());
+        assertEquals(1, taskManager.getAllSubtasks().size());
+        assertEquals(Status.DONE, taskManager.getEpicById(epic1.getId()).getStatus(),
+                "Статус эпика должен пересчитаться после удаления подзадачи");
+        assertTrue(taskManager.getPrioritizedTasks().isEmpty());
+    }
+
+    @Test
+    void testPagingById() {
+        Epic epic = taskManager.createEpic(new Epic("model.Epic 1", "model.Epic Description"));
+        for (int i = 0; i < 5; i++) {
+            taskManager.createTask(new Task("model.Task " + i, "Description", Status.NEW, null, null));
+            taskManager.createSubtask(new Subtask("model.Subtask " + i, "Description", epic.getId(), Status.NEW, null, null));
+        }
+
+        List<Task> first = taskManager.getPage(TypeTask.TASK, 0, 2);
+        List<Task> second = taskManager.getPage(TypeTask.TASK, first.get(first.size() - 1).getId(), 2);
+        List<Task> last = taskManager.getPage(TypeTask.TASK, second.get(second.size() - 1).getId(), 2);
+
+        assertEquals(List.of("model.Task 0", "model.Task 1"), first.stream().map(Task::getName).collect(Collectors.toList()));
+        assertEquals(List.of("model.Task 2", "model.Task 3"), second.stream().map(Task::getName).collect(Collectors.toList()));
+        assertEquals(1, last.size());
+        assertEquals(5, taskManager.getPage(TypeTask.SUBTASK, 0, 100).size());
+        assertEquals(List.of(epic), taskManager.getPage(TypeTask.EPIC, 0, 100));
+    }
+
+    @Test
+    void testContainsWithoutHistory() {
+        Task task = taskManager.createTask(new Task("model.Task 1", "Description", Status.NEW, null, null));
+        Epic epic = taskManager.createEpic(new Epic("model.Epic 1", "model.Epic Description"));
+
+        assertTrue(taskManager.contains(TypeTask.TASK, task.getId()));
+        assertTrue(taskManager.contains(TypeTask.EPIC, epic.getId()));
+        assertFalse(taskManager.contains(TypeTask.EPIC, task.getId()));
+        assertFalse(taskManager.contains(TypeTask.SUBTASK, epic.getId() + 1));
+        assertTrue(taskManager.getHistory().isEmpty(), "Проверка наличия не должна попадать в историю");
+    }
+
+    @Test
+    void testStreams() {
+        Epic epic = taskManager.createEpic(new Epic("model.Epic 1", "model.Epic Description"));
+        for (int i = 0; i < 5; i++) {
+            taskManager.createTask(new Task("model.Task " + i, "Description", i % 2 == 0 ? Status.DONE : Status.NEW,
+                    Duration.ofMinutes(30), LocalDateTime.of(2025, 2, 1, 9 + i, 0)));
+        }
+        taskManager.createSubtask(new Subtask("model.Subtask 1", "Description", epic.getId(), Status.NEW, null, null));
+
+        assertEquals(3, taskManager.stream(TypeTask.TASK).parallel().filter(task -> task.getStatus() == Status.DONE).count());
+        assertEquals(1, taskManager.stream(TypeTask.SUBTASK).count());
+        assertEquals(taskManager.getPrioritizedTasks(), taskManager.streamPrioritizedTasks().collect(Collectors.toList()));
+    }
+
+    @Test
+    void testHistoryPage() {
+        for (int i = 0; i < 5; i++) {
+            Task task = taskManager.createTask(new Task("model.Task " + i, "Description", Status.NEW, null, null));
+            taskManager.getTaskById(task.getId());
+        }
+
+        assertEquals(taskManager.getHistory().subList(1, 3), taskManager.getHistory(1, 2));
+        assertEquals(List.of(), taskManager.getHistory(10, 2));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.getHistory(-1, 2));
+    }
+
+    @Test
+    void testPrioritizedTasksWithEqualStartTimes() {
+        LocalDateTime nine = LocalDateTime.of(2025, 2, 1, 9, 0);
+        Task task = taskManager.createTask(new Task("model.Task 1", "Description", Status.NEW, Duration.ofHours(1), nine));
+        Task zero = taskManager.createTask(new Task("model.Task 2", "Description", Status.NEW, Duration.ZERO, nine));
+        Task noDuration = taskManager.createTask(new Task("model.Task 3", "Description", Status.NEW, null, nine));
+
+        assertEquals(List.of(task, zero, noDuration), taskManager.getPrioritizedTasks(),
+                "Задачи с одинаковым началом должны сохраняться в порядке id");
+        assertThrows(IllegalArgumentException.class, () -> taskManager.createTask(new Task("model.Task 4", "Description",
+                Status.NEW, Duration.ofHours(1), nine.plusMinutes(30))), "Задача нулевой длительности не скрывает более раннюю");
+
+        taskManager.deleteTask(zero.getId());
+        assertEquals(List.of(task, noDuration), taskManager.getPrioritizedTasks(), "Удаляться должна именно указанная задача");
+    }
+
+    @Test
+    void testPrioritizedTasksAfterUpdatingSameObject() {
+        Task task = taskManager.createTask(new Task("model.Task 1", "Description", Status.NEW,
+                Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 0)));
+        taskManager.createTask(new Task("model.Task 2", "Description", Status.NEW,
+                Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 10, 0)));
+
+        task.setStartTime(LocalDateTime.of(2025, 2, 1, 11, 0));
+        taskManager.updateTask(task);
+
+        List<Task> prioritized = taskManager.getPrioritizedTasks();
+        assertEquals(2, prioritized.size(), "Старая запись изменённой задачи не должна остаться в расписании");
+        assertEquals(task, prioritized.get(1));
+        assertDoesNotThrow(() -> taskManager.createTask(new Task("model.Task 3", "Description", Status.NEW,
+                Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 0))), "Освобожденный слот должен быть доступен");
+    }
+
+    @Test
+    void testSubscriptionReceivesEventsWithImages() throws InterruptedException {
+        BlockingQueue<TaskEvent> received = new LinkedBlockingQueue<>();
+        try (TaskSubscription subscription = taskManager.subscribe(received::addAll)) {
+            Epic epic = taskManager.createEpic(new Epic("model.Epic 1", "Description"));
+            Subtask subtask = taskManager.createSubtask(new Subtask("model.Subtask 1", "Description", epic.getId(),
+                    Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 0)));
+            Subtask done = new Subtask("model.Subtask 1", "Description", epic.getId(),
+                    Status.DONE, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 0));
+            done.setId(subtask.getId());
+            taskManager.updateSubtask(done);
+            taskManager.deleteEpic(epic.getId());
+
+            List<TaskEvent> events = new ArrayList<>();
+            while (events.size() < 7) {
+                TaskEvent event = received.poll(5, TimeUnit.SECONDS);
+                assertNotNull(event, "Ожидалось 7 событий, получено " + events.size());
+                events.add(event);
+            }
+            assertEquals(List.of("CREATED EPIC", "CREATED SUBTASK", "UPDATED EPIC", "UPDATED SUBTASK", "UPDATED EPIC",
+                            "DELETED SUBTASK", "DELETED EPIC"),
+                    events.stream().map(event -> event.getType() + " " + event.getTaskType()).collect(Collectors.toList()));
+            for (int i = 1; i < events.size(); i++) {
+                assertEquals(events.get(i - 1).getSequence() + 1, events.get(i).getSequence(), "Номера идут без пропусков");
+            }
+
+            TaskEvent subtaskUpdate = events.get(3);
+            assertEquals(Status.NEW, subtaskUpdate.getBefore().getStatus());
+            assertEquals(Status.DONE, subtaskUpdate.getAfter().getStatus());
+            assertNotSame(done, subtaskUpdate.getAfter(), "Образ должен быть копией");
+            TaskEvent epicUpdate = events.get(4);
+            assertEquals(Status.NEW, epicUpdate.getBefore().getStatus());
+            assertEquals(Status.DONE, epicUpdate.getAfter().getStatus());
+            assertNull(events.get(6).getAfter());
+            assertEquals(epic.getId(), events.get(6).getBefore().getId());
+            assertEquals(0, subscription.getDroppedCount());
+        }
+    }
+
+    @Test
+    void testEpicEventOnlyWhenAggregatesChange() throws InterruptedException {
+        Epic epic = taskManager.createEpic(new Epic("model.Epic 1", "Description"));
+        Subtask subtask = taskManager.createSubtask(new Subtask("model.Subtask 1", "Description", epic.getId(),
+                Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 0)));
+        BlockingQueue<TaskEvent> received = new LinkedBlockingQueue<>();
+        try (TaskSubscription subscription = taskManager.subscribe(received::addAll)) {
+            Subtask renamed = new Subtask("model.Subtask renamed", "Description", epic.getId(),
+                    Status.NEW, Duration.ofHours(1), LocalDateTime.of(2025, 2, 1, 9, 0));
+            renamed.setId(subtask.getId());
+            taskManager.updateSubtask(renamed);
+            taskManager.deleteEpic(epic.getId());
+
+            List<String> events = new ArrayList<>();
+            while (events.size() < 3) {
+                TaskEvent event = received.poll(5, TimeUnit.SECONDS);
+                assertNotNull(event, "Ожидалось 3 события, получено " + events.size());
+                events.add(event.getType() + " " + event.getTaskType());
+            }
+            assertEquals(List.of("UPDATED SUBTASK", "DELETED SUBTASK", "DELETED EPIC"), events,
+                    "Переименование подзадачи не меняет статус и время эпика");
+            assertEquals(0, subscription.getDroppedCount());
+        }
+    }
+
+    @Test
+    void testSlowSubscriberDoesNotBlockWrites() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        TaskSubscription subscription = taskManager.subscribe(batch -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 4, 1);
+        for (int i = 0; i < 20; i++) {
+            taskManager.createTask(new Task("model.Task " + i, "Description", Status.NEW, null, null));
+        }
+        assertTrue(subscription.getDroppedCount() > 0, "Переполнение буфера должно отбрасывать события");
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (subscription.getDeliveredCount() + subscription.getDroppedCount() < 20 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(20, subscription.getDeliveredCount() + subscription.getDroppedCount());
+        subscription.close();
+
+        taskManager.createTask(new Task("model.Task 21", "Description", Status.NEW, null, null));
+        assertEquals(20, subscription.getDeliveredCount() + subscription.getDroppedCount(),
+                "Закрытая подписка не получает событий");
+    }
+
+    @Test
+    void testOverflowDeliversMarkerWithLostCount() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<TaskEvent> received = new LinkedBlockingQueue<>();
+        try (TaskSubscription subscription = taskManager.subscribe(batch -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.addAll(batch);
+        }, 4, 1)) {
+            for (int i = 0; i < 20; i++) {
+                taskManager.createTask(new Task("model.Task " + i, "Description", Status.NEW, null, null));
+            }
+            release.countDown();
+            List<TaskEvent> events = new ArrayList<>();
+            TaskEvent event;
+            do {
+                event = received.poll(5, TimeUnit.SECONDS);
+                assertNotNull(event, "Ожидался маркер переполнения");
+                events.add(event);
+            } while (event.getType() != TaskEvent.Type.OVERFLOW);
+
+            assertEquals(subscription.getDroppedCount(), event.getLostCount(), "Маркер сообщает число потерь");
+            assertEquals(20, event.getSequence(), "Номер маркера - номер последнего потерянного события");
+            assertEquals(20, events.size() - 1 + event.getLostCount(), "До маркера приходят все принятые события");
+
+            taskManager.createTask(new Task("model.Task 21", "Description", Status.NEW, null, null));
+            TaskEvent next = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(next);
+            assertEquals(TaskEvent.Type.CREATED, next.getType(), "После маркера доставка продолжается");
+            assertEquals(event.getSequence() + 1, next.getSequence());
+        }
+    }
+}